@@ -0,0 +1,61 @@
+#!/usr/bin/env bash
+# Время от запуска JVM до первого успешного ответа GET /genres в разных режимах старта.
+# Каждый режим работает со своей файловой H2: первый запуск создаёт схему, следующие — замеряются.
+#
+#   scripts/startup-time.sh [повторов] [--no-build]
+set -euo pipefail
+
+cd "$(dirname "$0")/.."
+RUNS=${1:-3}
+PORT=${PORT:-18080}
+JAVA=${JAVA_HOME:+$JAVA_HOME/bin/}java
+JAR=target/filmorate-0.0.1-SNAPSHOT.jar
+CDS=$PWD/target/cds
+AOT_CDS=$PWD/target/aot/cds
+WORK=$(mktemp -d)
+trap 'rm -rf "$WORK"' EXIT
+
+if [[ "${2:-}" != "--no-build" ]]; then
+    mvn -B -q -Pcds clean package -DskipTests
+    mvn -B -q -Paot,cds clean package -DskipTests
+fi
+
+time_to_first_request() {
+    local db=$1
+    shift
+    local started
+    started=$(date +%s%N)
+    "$@" --server.port="$PORT" --spring.datasource.url="jdbc:h2:file:$db" >"$WORK/app.log" 2>&1 &
+    local pid=$!
+    until [[ "$(curl -s -o /dev/null -w '%{http_code}' "http://localhost:$PORT/genres")" == "200" ]]; do
+        if ! kill -0 "$pid" 2>/dev/null; then
+            echo "приложение завершилось, см. журнал:" >&2
+            tail -20 "$WORK/app.log" >&2
+            exit 1
+        fi
+        sleep 0.02
+    done
+    echo $(( ($(date +%s%N) - started) / 1000000 ))
+    kill "$pid"
+    wait "$pid" 2>/dev/null || true
+}
+
+measure() {
+    local mode=$1
+    shift
+    local db="$WORK/$mode/filmorate"
+    time_to_first_request "$db" "$@" >/dev/null
+    local results=()
+    for ((i = 0; i < RUNS; i++)); do
+        results+=("$(time_to_first_request "$db" "$@")")
+    done
+    printf '%-22s %s мс\n' "$mode" "${results[*]}"
+}
+
+MAIN=ru.yandex.practicum.filmorate.FilmorateApplication
+
+measure "jar" "$JAVA" -jar "$JAR"
+measure "cds" "$JAVA" -XX:SharedArchiveFile="$CDS/filmorate.jsa" \
+    -cp "$CDS/application.jar:$CDS/BOOT-INF/lib/*" "$MAIN"
+measure "aot+cds" "$JAVA" -XX:SharedArchiveFile="$AOT_CDS/filmorate.jsa" -Dspring.aot.enabled=true \
+    -cp "$AOT_CDS/application.jar:$AOT_CDS/BOOT-INF/lib/*" "$MAIN"
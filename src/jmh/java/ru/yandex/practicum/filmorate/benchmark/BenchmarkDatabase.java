@@ -0,0 +1,98 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import ru.yandex.practicum.filmorate.FilmorateApplication;
+import ru.yandex.practicum.filmorate.dao.FilmPopularityIndex;
+import ru.yandex.practicum.filmorate.dao.FilmSimilarityIndex;
+import ru.yandex.practicum.filmorate.dao.FriendGraphIndex;
+import ru.yandex.practicum.filmorate.dao.IdExistenceFilter;
+import ru.yandex.practicum.filmorate.dao.LikeCountWriteBehind;
+import ru.yandex.practicum.filmorate.datagen.DataGenerator;
+import ru.yandex.practicum.filmorate.datagen.GeneratorSettings;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Поднимает контекст приложения на отдельной H2 в памяти и наполняет её данными заданного объёма.
+ * Объём задаётся параметрами JMH, например {@code -p users=100000 -p films=50000}.
+ */
+@State(Scope.Benchmark)
+public class BenchmarkDatabase {
+    @Param("10000")
+    public int users;
+
+    @Param("5000")
+    public int films;
+
+    @Param("20")
+    public int likesPerUser;
+
+    @Param("30")
+    public int friendsPerUser;
+
+    @Param("42")
+    public long seed;
+
+    private ConfigurableApplicationContext context;
+
+    @Setup
+    public void start() {
+        List<String> args = new ArrayList<>(List.of(
+                "--spring.datasource.url=jdbc:h2:mem:bench-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1",
+                "--spring.main.banner-mode=off",
+                "--logging.level.root=WARN"));
+        args.addAll(extraArguments());
+        context = new SpringApplicationBuilder(FilmorateApplication.class)
+                .web(webApplicationType())
+                .run(args.toArray(String[]::new));
+        new DataGenerator(GeneratorSettings.builder()
+                .seed(seed)
+                .users(users)
+                .films(films)
+                .likesPerUser(likesPerUser)
+                .friendsPerUser(friendsPerUser)
+                .build())
+                .generate(bean(DataSource.class));
+        bean(LikeCountWriteBehind.class).resync();
+        bean(FilmPopularityIndex.class).seed();
+        bean(FriendGraphIndex.class).load();
+        bean(IdExistenceFilter.class).load();
+        bean(FilmSimilarityIndex.class).rebuild();
+    }
+
+    protected WebApplicationType webApplicationType() {
+        return WebApplicationType.NONE;
+    }
+
+    protected List<String> extraArguments() {
+        return List.of();
+    }
+
+    @TearDown
+    public void stop() {
+        context.close();
+    }
+
+    public <T> T bean(Class<T> type) {
+        return context.getBean(type);
+    }
+
+    public int randomUserId() {
+        return 1 + ThreadLocalRandom.current().nextInt(users);
+    }
+
+    public int randomFilmId() {
+        return 1 + ThreadLocalRandom.current().nextInt(films);
+    }
+}
@@ -0,0 +1,81 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.UserStorage;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.LocalDate;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Нагрузочное сравнение режимов потоков на эндпоинтах лайков и друзей. Режим {@code SampleTime}
+ * даёт перцентили (p0.99), {@code Throughput} — пропускную способность. Число клиентов задаётся через {@code -t}.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 10)
+@Threads(64)
+@Fork(1)
+public class HttpLoadBenchmark {
+
+    @State(Scope.Thread)
+    public static class Client {
+        int userId;
+
+        @Setup
+        public void createUser(HttpServerState server) {
+            String login = "load" + UUID.randomUUID().toString().replace("-", "");
+            userId = server.bean(UserStorage.class).create(User.builder()
+                    .email(login + "@mail.ru")
+                    .login(login)
+                    .name(login)
+                    .birthday(LocalDate.of(1990, 1, 1))
+                    .build()).getId();
+        }
+    }
+
+    @Benchmark
+    public int likeAndUnlike(HttpServerState server, Client client) throws IOException, InterruptedException {
+        String path = "/films/" + server.randomFilmId() + "/like/" + client.userId;
+        return send(server, "PUT", path) + send(server, "DELETE", path);
+    }
+
+    @Benchmark
+    public int befriendAndUnfriend(HttpServerState server, Client client) throws IOException, InterruptedException {
+        String path = "/users/" + client.userId + "/friends/" + server.randomUserId();
+        return send(server, "PUT", path) + send(server, "DELETE", path);
+    }
+
+    @Benchmark
+    public int friends(HttpServerState server) throws IOException, InterruptedException {
+        return send(server, "GET", "/users/" + server.randomUserId() + "/friends");
+    }
+
+    private static int send(HttpServerState server, String method, String path)
+            throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(server.url(path)))
+                .method(method, HttpRequest.BodyPublishers.noBody())
+                .build();
+        int status = server.client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+        if (status >= 500 && status != 503) {
+            throw new IllegalStateException(method + " " + path + " -> " + status);
+        }
+        return status;
+    }
+}
@@ -0,0 +1,41 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.core.env.Environment;
+
+import java.net.http.HttpClient;
+import java.util.List;
+
+/**
+ * Приложение с HTTP-сервером на случайном порту: {@code platform} — обычный пул потоков Tomcat,
+ * {@code virtual} — профиль {@code virtual} с виртуальными потоками и ограничением конкурентности.
+ */
+@State(Scope.Benchmark)
+public class HttpServerState extends BenchmarkDatabase {
+    @Param({"platform", "virtual"})
+    public String threads;
+
+    public final HttpClient client = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .build();
+
+    @Override
+    protected WebApplicationType webApplicationType() {
+        return WebApplicationType.SERVLET;
+    }
+
+    @Override
+    protected List<String> extraArguments() {
+        if ("virtual".equals(threads)) {
+            return List.of("--server.port=0", "--spring.profiles.active=virtual");
+        }
+        return List.of("--server.port=0");
+    }
+
+    public String url(String path) {
+        return "http://localhost:" + bean(Environment.class).getProperty("local.server.port") + path;
+    }
+}
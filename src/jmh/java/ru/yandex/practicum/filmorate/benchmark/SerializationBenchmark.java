@@ -0,0 +1,148 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.Mpa;
+import ru.yandex.practicum.filmorate.model.User;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Сериализация списков {@link Film} и {@link User} в JSON, Smile и CBOR теми же настройками Jackson,
+ * что и в приложении. Размер ответа без сжатия и после gzip печатается при подготовке каждого набора.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SerializationBenchmark {
+    private static final String[] GENRES = {"Комедия", "Драма", "Мультфильм", "Триллер", "Документальный", "Боевик"};
+    private static final String[] RATINGS = {"G", "PG", "PG-13", "R", "NC-17"};
+
+    @Param({"json", "smile", "cbor"})
+    public String format;
+
+    @Param("1000")
+    public int size;
+
+    private List<Film> films;
+    private List<User> users;
+    private ObjectWriter filmWriter;
+    private ObjectWriter userWriter;
+    private ObjectReader filmReader;
+    private ObjectReader userReader;
+    private byte[] filmBytes;
+    private byte[] userBytes;
+
+    @Setup
+    public void prepare() throws IOException {
+        ObjectMapper mapper = new Jackson2ObjectMapperBuilder()
+                .factory(factory(format))
+                .featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+                .build();
+        SplittableRandom random = new SplittableRandom(42);
+        films = new ArrayList<>(size);
+        users = new ArrayList<>(size);
+        for (int i = 1; i <= size; i++) {
+            films.add(film(i, random));
+            users.add(User.builder()
+                    .id(i)
+                    .email("user" + i + "@mail.ru")
+                    .login("user" + i)
+                    .name("User " + i)
+                    .birthday(LocalDate.of(1950, 1, 1).plusDays(random.nextInt(20_000)))
+                    .build());
+        }
+        filmWriter = mapper.writerFor(mapper.getTypeFactory().constructCollectionType(List.class, Film.class));
+        userWriter = mapper.writerFor(mapper.getTypeFactory().constructCollectionType(List.class, User.class));
+        filmReader = mapper.readerFor(mapper.getTypeFactory().constructCollectionType(List.class, Film.class));
+        userReader = mapper.readerFor(mapper.getTypeFactory().constructCollectionType(List.class, User.class));
+        filmBytes = filmWriter.writeValueAsBytes(films);
+        userBytes = userWriter.writeValueAsBytes(users);
+        System.out.printf("%n%s, %d записей: фильмы %d байт (gzip %d), пользователи %d байт (gzip %d)%n",
+                format, size, filmBytes.length, gzipped(filmBytes), userBytes.length, gzipped(userBytes));
+    }
+
+    @Benchmark
+    public byte[] serializeFilms() throws IOException {
+        return filmWriter.writeValueAsBytes(films);
+    }
+
+    @Benchmark
+    public byte[] serializeUsers() throws IOException {
+        return userWriter.writeValueAsBytes(users);
+    }
+
+    @Benchmark
+    public List<Film> deserializeFilms() throws IOException {
+        return filmReader.readValue(filmBytes);
+    }
+
+    @Benchmark
+    public List<User> deserializeUsers() throws IOException {
+        return userReader.readValue(userBytes);
+    }
+
+    private static JsonFactory factory(String format) {
+        return switch (format) {
+            case "json" -> new JsonFactory();
+            case "smile" -> new SmileFactory();
+            case "cbor" -> new CBORFactory();
+            default -> throw new IllegalArgumentException("Неизвестный формат " + format);
+        };
+    }
+
+    private static Film film(int id, SplittableRandom random) {
+        int rating = random.nextInt(RATINGS.length);
+        Film film = Film.builder()
+                .id(id)
+                .name("Film " + id)
+                .description("Description of film " + id)
+                .releaseDate(LocalDate.of(1930, 1, 1).plusDays(random.nextInt(34_000)))
+                .duration(60 + random.nextInt(120))
+                .mpa(new Mpa(rating + 1, RATINGS[rating]))
+                .likeCount(random.nextInt(1000))
+                .build();
+        for (int i = 1 + random.nextInt(3); i > 0; i--) {
+            int genre = random.nextInt(GENRES.length);
+            film.getGenres().add(new Genre(genre + 1, GENRES[genre]));
+        }
+        return film;
+    }
+
+    private static int gzipped(byte[] bytes) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(bytes);
+        }
+        return out.size();
+    }
+}
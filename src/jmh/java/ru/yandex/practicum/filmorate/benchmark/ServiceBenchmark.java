@@ -0,0 +1,129 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Page;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.service.FilmService;
+import ru.yandex.practicum.filmorate.service.UserService;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Основные сценарии REST API на уровне сервисов: с валидацией, проверками существования и сборкой ответа.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ServiceBenchmark {
+    private FilmService filmService;
+    private UserService userService;
+    private int hotFilmId;
+
+    @Setup
+    public void lookup(BenchmarkDatabase database) {
+        filmService = database.bean(FilmService.class);
+        userService = database.bean(UserService.class);
+        hotFilmId = database.randomFilmId();
+    }
+
+    @Benchmark
+    public Film createFilm() {
+        return filmService.create(StorageBenchmark.newFilm());
+    }
+
+    @Benchmark
+    public Film getFilm(BenchmarkDatabase database) {
+        return filmService.findFilmById(database.randomFilmId());
+    }
+
+    @Benchmark
+    public Page<Film> filmsPage(BenchmarkDatabase database) {
+        return filmService.findFilmsPage(String.valueOf(database.randomFilmId()), 100);
+    }
+
+    @Benchmark
+    public List<Film> popularFilms() {
+        return filmService.findPopular(10);
+    }
+
+    @Benchmark
+    public List<Film> popularFilmsByGenreAndYear() {
+        return filmService.findPopular(10, 2, null, 2000);
+    }
+
+    /**
+     * Восемь потоков читают один и тот же фильм и одни и те же популярные фильмы, пока девятый лайкает
+     * этот фильм: одинаковые чтения объединяются, а популярные не ждут пересчёта после каждого лайка.
+     */
+    @Benchmark
+    @Group("trending")
+    @GroupThreads(4)
+    public Film trendingFilm() {
+        return filmService.findFilmById(hotFilmId);
+    }
+
+    @Benchmark
+    @Group("trending")
+    @GroupThreads(4)
+    public List<Film> trendingPopular() {
+        return filmService.findPopular(10);
+    }
+
+    @Benchmark
+    @Group("trending")
+    @GroupThreads(1)
+    public void trendingLikes(WriterState writer) {
+        filmService.addLike(hotFilmId, writer.userId);
+        filmService.removeLike(hotFilmId, writer.userId);
+    }
+
+    @Benchmark
+    public void likeAndUnlike(BenchmarkDatabase database, WriterState writer) {
+        int filmId = database.randomFilmId();
+        filmService.addLike(filmId, writer.userId);
+        filmService.removeLike(filmId, writer.userId);
+    }
+
+    @Benchmark
+    public List<Film> recommendations(BenchmarkDatabase database) {
+        return filmService.findRecommendations(database.randomUserId(), 10);
+    }
+
+    @Benchmark
+    public void befriendAndUnfriend(BenchmarkDatabase database, WriterState writer) {
+        int friendId = database.randomUserId();
+        userService.addFriend(writer.userId, friendId);
+        userService.removeFriend(writer.userId, friendId);
+    }
+
+    @Benchmark
+    public List<User> friends(BenchmarkDatabase database) {
+        return userService.findAllFriends(database.randomUserId());
+    }
+
+    @Benchmark
+    public List<User> commonFriends(BenchmarkDatabase database) {
+        return userService.findCommonFriends(database.randomUserId(), database.randomUserId());
+    }
+
+    @Benchmark
+    public List<User> friendSuggestions(BenchmarkDatabase database) {
+        return userService.findSuggestions(database.randomUserId(), 10);
+    }
+}
@@ -0,0 +1,217 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmPatch;
+import ru.yandex.practicum.filmorate.model.Mpa;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.FriendStorage;
+import ru.yandex.practicum.filmorate.storage.GenreStorage;
+import ru.yandex.practicum.filmorate.storage.LikeStorage;
+import ru.yandex.practicum.filmorate.storage.MpaStorage;
+import ru.yandex.practicum.filmorate.storage.UserStorage;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Методы хранилищ по отдельности, без проверок сервисного слоя.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class StorageBenchmark {
+    private static final int PAGE_SIZE = 100;
+
+    private FilmStorage filmStorage;
+    private UserStorage userStorage;
+    private LikeStorage likeStorage;
+    private FriendStorage friendStorage;
+    private GenreStorage genreStorage;
+    private MpaStorage mpaStorage;
+
+    @Setup
+    public void lookup(BenchmarkDatabase database) {
+        filmStorage = database.bean(FilmStorage.class);
+        userStorage = database.bean(UserStorage.class);
+        likeStorage = database.bean(LikeStorage.class);
+        friendStorage = database.bean(FriendStorage.class);
+        genreStorage = database.bean(GenreStorage.class);
+        mpaStorage = database.bean(MpaStorage.class);
+    }
+
+    @Benchmark
+    public Film filmCreate() {
+        return filmStorage.create(newFilm());
+    }
+
+    @Benchmark
+    public Film filmUpdate(BenchmarkDatabase database) {
+        Film film = filmStorage.findFilmById(database.randomFilmId()).orElseThrow();
+        film.setDuration(film.getDuration() % 180 + 1);
+        return filmStorage.update(film).orElseThrow();
+    }
+
+    @Benchmark
+    public Film filmPatch(BenchmarkDatabase database) {
+        FilmPatch patch = new FilmPatch();
+        patch.setDuration(ThreadLocalRandom.current().nextInt(1, 180));
+        return filmStorage.patch(database.randomFilmId(), patch).orElseThrow();
+    }
+
+    @Benchmark
+    public Film filmFindById(BenchmarkDatabase database) {
+        return filmStorage.findFilmById(database.randomFilmId()).orElseThrow();
+    }
+
+    @Benchmark
+    public List<Film> filmFindAfter(BenchmarkDatabase database) {
+        return filmStorage.findFilmsAfter(database.randomFilmId(), PAGE_SIZE);
+    }
+
+    @Benchmark
+    public List<Film> filmFindByIds(BenchmarkDatabase database) {
+        return filmStorage.findFilmsByIds(List.of(database.randomFilmId(), database.randomFilmId(),
+                database.randomFilmId(), database.randomFilmId(), database.randomFilmId()));
+    }
+
+    @Benchmark
+    @Warmup(iterations = 1)
+    @Measurement(iterations = 3)
+    public List<Film> filmFindAll() {
+        return filmStorage.findAllFilms();
+    }
+
+    @Benchmark
+    @Warmup(iterations = 1)
+    @Measurement(iterations = 3)
+    public void filmStreamAll(Blackhole blackhole) {
+        filmStorage.streamAllFilms(blackhole::consume);
+    }
+
+    @Benchmark
+    public int[] filmSearchSelective(BenchmarkDatabase database) {
+        return filmStorage.searchFilmIds("film " + database.randomFilmId(), true, true, 10);
+    }
+
+    @Benchmark
+    public int[] filmSearchBroad() {
+        return filmStorage.searchFilmIds("description", true, true, 10);
+    }
+
+    @Benchmark
+    public User userFindById(BenchmarkDatabase database) {
+        return userStorage.findUserById(database.randomUserId()).orElseThrow();
+    }
+
+    @Benchmark
+    public boolean userExistsById(BenchmarkDatabase database) {
+        return userStorage.existsById(database.randomUserId());
+    }
+
+    @Benchmark
+    public List<User> userFindAfter(BenchmarkDatabase database) {
+        return userStorage.findUsersAfter(database.randomUserId(), PAGE_SIZE);
+    }
+
+    @Benchmark
+    public List<User> userFindByIds(BenchmarkDatabase database) {
+        return userStorage.findUsersByIds(new int[]{database.randomUserId(), database.randomUserId(),
+                database.randomUserId(), database.randomUserId(), database.randomUserId()});
+    }
+
+    @Benchmark
+    @Warmup(iterations = 1)
+    @Measurement(iterations = 3)
+    public List<User> userFindAll() {
+        return userStorage.findAll();
+    }
+
+    @Benchmark
+    public void likeAddRemove(BenchmarkDatabase database, WriterState writer) {
+        int filmId = database.randomFilmId();
+        likeStorage.addLike(filmId, writer.userId);
+        likeStorage.removeLike(filmId, writer.userId);
+    }
+
+    @Benchmark
+    public List<Integer> likeFindPopularIds() {
+        return likeStorage.findPopularFilmIds(10);
+    }
+
+    @Benchmark
+    public List<Integer> likeFindPopularIdsByGenreAndMpa() {
+        return likeStorage.findPopularFilmIds(10, 2, 3, null);
+    }
+
+    @Benchmark
+    public int[] likeFindRecommendedIds(BenchmarkDatabase database) {
+        return likeStorage.findRecommendedFilmIds(database.randomUserId(), 10);
+    }
+
+    @Benchmark
+    public void friendAddRemove(BenchmarkDatabase database, WriterState writer) {
+        int friendId = database.randomUserId();
+        friendStorage.addFriend(writer.userId, friendId);
+        friendStorage.removeFriend(writer.userId, friendId);
+    }
+
+    @Benchmark
+    public List<User> friendFindAll(BenchmarkDatabase database) {
+        return friendStorage.findAllFriends(database.randomUserId());
+    }
+
+    @Benchmark
+    public List<User> friendFindAfter(BenchmarkDatabase database) {
+        return friendStorage.findFriendsAfter(database.randomUserId(), 0, 10);
+    }
+
+    @Benchmark
+    public List<User> friendFindCommon(BenchmarkDatabase database) {
+        return friendStorage.findCommonFriends(database.randomUserId(), database.randomUserId());
+    }
+
+    @Benchmark
+    public List<User> friendFindSuggestions(BenchmarkDatabase database) {
+        return friendStorage.findSuggestions(database.randomUserId(), 10);
+    }
+
+    @Benchmark
+    public List<Film> genreFindByFilms(BenchmarkDatabase database) {
+        List<Film> films = filmStorage.findFilmsAfter(database.randomFilmId(), PAGE_SIZE);
+        genreStorage.findAllGenresByFilm(films);
+        return films;
+    }
+
+    @Benchmark
+    public Object referenceData() {
+        return genreStorage.findGenreById(1 + ThreadLocalRandom.current().nextInt(6)).orElseThrow().getName()
+                + mpaStorage.findMpaById(1 + ThreadLocalRandom.current().nextInt(5)).orElseThrow().getName();
+    }
+
+    static Film newFilm() {
+        return Film.builder()
+                .name("Benchmark film")
+                .description("Фильм, созданный бенчмарком")
+                .releaseDate(LocalDate.of(2000, 1, 1))
+                .duration(120)
+                .mpa(new Mpa(1, null))
+                .build();
+    }
+}
@@ -0,0 +1,30 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.UserStorage;
+
+import java.time.LocalDate;
+import java.util.UUID;
+
+/**
+ * Отдельный пользователь на каждый поток: у него нет лайков и друзей, поэтому пары
+ * «добавить — удалить» в бенчмарках не конфликтуют с заранее загруженными данными.
+ */
+@State(Scope.Thread)
+public class WriterState {
+    public int userId;
+
+    @Setup
+    public void createUser(BenchmarkDatabase database) {
+        String login = "writer" + UUID.randomUUID().toString().replace("-", "");
+        userId = database.bean(UserStorage.class).create(User.builder()
+                .email(login + "@mail.ru")
+                .login(login)
+                .name(login)
+                .birthday(LocalDate.of(1990, 1, 1))
+                .build()).getId();
+    }
+}
@@ -0,0 +1,30 @@
+package ru.yandex.practicum.filmorate.config;
+
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+
+/**
+ * Двоичные представления ответов и тел запросов: Smile ({@code application/x-jackson-smile})
+ * и CBOR ({@code application/cbor}), выбираются по заголовкам Accept и Content-Type.
+ * Мапперы строятся из того же {@link Jackson2ObjectMapperBuilder}, что и JSON, поэтому настройки
+ * {@code spring.jackson.*} (например, даты строками) действуют во всех форматах одинаково.
+ * Бины заменяют одноимённые конвертеры Spring MVC по умолчанию, собранные без этих настроек.
+ */
+@Configuration
+public class BinaryFormatsConfig {
+
+    @Bean
+    public MappingJackson2SmileHttpMessageConverter smileHttpMessageConverter(Jackson2ObjectMapperBuilder builder) {
+        return new MappingJackson2SmileHttpMessageConverter(builder.factory(new SmileFactory()).build());
+    }
+
+    @Bean
+    public MappingJackson2CborHttpMessageConverter cborHttpMessageConverter(Jackson2ObjectMapperBuilder builder) {
+        return new MappingJackson2CborHttpMessageConverter(builder.factory(new CBORFactory()).build());
+    }
+}
@@ -0,0 +1,61 @@
+package ru.yandex.practicum.filmorate.config;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.Cookie;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.WebUtils;
+
+import java.io.IOException;
+import java.util.Set;
+
+/**
+ * Изменяющий запрос выставляет клиенту cookie со сроком, до которого его чтения идут на основную БД,
+ * — так клиент не увидит устаревших данных с реплики сразу после своего изменения.
+ */
+public class ReadYourWritesFilter extends OncePerRequestFilter {
+    static final String COOKIE = "filmorate-primary-until";
+
+    private static final Set<String> READ_METHODS = Set.of("GET", "HEAD", "OPTIONS");
+
+    private final long stickinessMs;
+
+    ReadYourWritesFilter(long stickinessMs) {
+        this.stickinessMs = stickinessMs;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        long now = System.currentTimeMillis();
+        if (!READ_METHODS.contains(request.getMethod())) {
+            Cookie cookie = new Cookie(COOKIE, String.valueOf(now + stickinessMs));
+            cookie.setPath("/");
+            cookie.setHttpOnly(true);
+            cookie.setMaxAge((int) Math.max(1, (stickinessMs + 999) / 1000));
+            response.addCookie(cookie);
+            ReplicaRoutingDataSource.stickToPrimary();
+        } else if (stickyUntil(request) > now) {
+            ReplicaRoutingDataSource.stickToPrimary();
+        }
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            ReplicaRoutingDataSource.release();
+        }
+    }
+
+    private static long stickyUntil(HttpServletRequest request) {
+        Cookie cookie = WebUtils.getCookie(request, COOKIE);
+        if (cookie == null) {
+            return 0;
+        }
+        try {
+            return Long.parseLong(cookie.getValue());
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+}
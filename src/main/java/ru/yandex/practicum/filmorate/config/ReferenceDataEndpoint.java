@@ -0,0 +1,31 @@
+package ru.yandex.practicum.filmorate.config;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.yandex.practicum.filmorate.dao.ChangeLog;
+import ru.yandex.practicum.filmorate.dao.ReferenceDataRegistry;
+
+import java.util.Map;
+
+/**
+ * {@code POST /actuator/referencedata}: перечитать справочники после правки mpa_rating или genres в обход
+ * приложения. Запись в журнал изменений заставляет перечитать их и остальные узлы.
+ */
+@Component
+@Endpoint(id = "referencedata")
+@RequiredArgsConstructor
+public class ReferenceDataEndpoint {
+    private final ReferenceDataRegistry referenceData;
+    private final ChangeLog changeLog;
+    private final TransactionTemplate transactionTemplate;
+
+    @WriteOperation
+    public Map<String, Integer> reload() {
+        transactionTemplate.executeWithoutResult(status -> changeLog.referenceDataChanged());
+        referenceData.reload();
+        return Map.of("mpa", referenceData.findAllMpa().size(), "genres", referenceData.findAllGenres().size());
+    }
+}
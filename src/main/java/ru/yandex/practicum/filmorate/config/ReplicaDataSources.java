@@ -0,0 +1,94 @@
+package ru.yandex.practicum.filmorate.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import javax.sql.DataSource;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Пулы соединений основной БД и реплик. Раз в {@code filmorate.datasource.heartbeat-interval-ms}
+ * в основную БД пишется отметка времени, а с каждой реплики читается последняя доехавшая:
+ * разница — отставание реплики. Реплики с отставанием больше {@code max-lag-ms} или недоступные
+ * исключаются из чтения, пока не догонят.
+ */
+@Slf4j
+public class ReplicaDataSources implements AutoCloseable {
+    private static final String WRITE_HEARTBEAT = "MERGE INTO replication_heartbeat (id, beat_at) KEY(id) VALUES (1, ?)";
+    private static final String READ_HEARTBEAT = "SELECT beat_at FROM replication_heartbeat WHERE id = 1";
+
+    private final HikariDataSource primary;
+    private final List<Replica> replicas;
+    private final long maxLagMs;
+    private final AtomicInteger next = new AtomicInteger();
+
+    ReplicaDataSources(HikariDataSource primary, List<HikariDataSource> replicas, long maxLagMs) {
+        this.primary = primary;
+        this.replicas = replicas.stream().map(Replica::new).toList();
+        this.maxLagMs = maxLagMs;
+    }
+
+    public DataSource primary() {
+        return primary;
+    }
+
+    /**
+     * Следующая по кругу реплика, успевающая за основной БД, или основная БД, если таких нет.
+     */
+    public DataSource forRead() {
+        int size = replicas.size();
+        int start = Math.floorMod(next.getAndIncrement(), size);
+        for (int i = 0; i < size; i++) {
+            Replica replica = replicas.get((start + i) % size);
+            if (replica.lagMs <= maxLagMs) {
+                return replica.dataSource;
+            }
+        }
+        return primary;
+    }
+
+    public double lagMs(int index) {
+        return replicas.get(index).lagMs;
+    }
+
+    @Scheduled(fixedDelayString = "${filmorate.datasource.heartbeat-interval-ms:1000}")
+    public void heartbeat() {
+        long now = System.currentTimeMillis();
+        new JdbcTemplate(primary).update(WRITE_HEARTBEAT, now);
+        for (Replica replica : replicas) {
+            long lag;
+            try {
+                Long beatAt = new JdbcTemplate(replica.dataSource).queryForObject(READ_HEARTBEAT, Long.class);
+                lag = Math.max(0, now - beatAt);
+            } catch (RuntimeException e) {
+                lag = Long.MAX_VALUE;
+            }
+            boolean wasAvailable = replica.lagMs <= maxLagMs;
+            replica.lagMs = lag;
+            if (wasAvailable && lag > maxLagMs) {
+                log.warn("Реплика {} исключена из чтения, отставание {} мс", replica.dataSource.getPoolName(),
+                        lag == Long.MAX_VALUE ? "неизвестно" : lag);
+            } else if (!wasAvailable && lag <= maxLagMs) {
+                log.info("Реплика {} принимает чтение, отставание {} мс", replica.dataSource.getPoolName(), lag);
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        replicas.forEach(replica -> replica.dataSource.close());
+        primary.close();
+    }
+
+    private static final class Replica {
+        private final HikariDataSource dataSource;
+        private volatile long lagMs = Long.MAX_VALUE;
+
+        private Replica(HikariDataSource dataSource) {
+            this.dataSource = dataSource;
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package ru.yandex.practicum.filmorate.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+@ConfigurationProperties(prefix = "filmorate.datasource")
+public class ReplicaProperties {
+    private List<Replica> replicas = new ArrayList<>();
+    /**
+     * Реплика, отставшая от основной БД больше чем на это время, не получает запросов на чтение.
+     */
+    private long maxLagMs = 5_000;
+    /**
+     * Сколько после собственного изменения клиент читает с основной БД.
+     */
+    private long stickinessMs = 5_000;
+
+    @Data
+    public static class Replica {
+        private String url;
+        private String username;
+        private String password;
+    }
+}
@@ -0,0 +1,82 @@
+package ru.yandex.practicum.filmorate.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.util.List;
+
+/**
+ * Маршрутизация чтения на реплики. Включается, только если задана хотя бы одна реплика
+ * ({@code filmorate.datasource.replicas[0].url}); иначе Spring Boot создаёт обычный единственный пул.
+ * Настройки {@code spring.datasource.hikari.*} применяются ко всем пулам.
+ */
+@Configuration
+@EnableConfigurationProperties(ReplicaProperties.class)
+@ConditionalOnProperty(prefix = "filmorate.datasource.replicas[0]", name = "url")
+public class ReplicaRoutingConfig {
+
+    @Bean(destroyMethod = "close")
+    public ReplicaDataSources replicaDataSources(DataSourceProperties dataSourceProperties,
+                                                 ReplicaProperties replicaProperties,
+                                                 Environment environment,
+                                                 MeterRegistry meterRegistry) {
+        HikariDataSource primary = dataSourceProperties.initializeDataSourceBuilder()
+                .type(HikariDataSource.class)
+                .build();
+        bindPoolSettings(primary, environment, meterRegistry, "primary");
+        List<HikariDataSource> replicas = replicaProperties.getReplicas().stream()
+                .map(replica -> {
+                    HikariDataSource dataSource = new HikariDataSource();
+                    dataSource.setJdbcUrl(replica.getUrl());
+                    dataSource.setUsername(replica.getUsername() != null
+                            ? replica.getUsername() : dataSourceProperties.determineUsername());
+                    dataSource.setPassword(replica.getPassword() != null
+                            ? replica.getPassword() : dataSourceProperties.determinePassword());
+                    return dataSource;
+                })
+                .toList();
+        for (int i = 0; i < replicas.size(); i++) {
+            bindPoolSettings(replicas.get(i), environment, meterRegistry, "replica-" + i);
+        }
+        ReplicaDataSources dataSources = new ReplicaDataSources(primary, replicas, replicaProperties.getMaxLagMs());
+        for (int i = 0; i < replicas.size(); i++) {
+            int index = i;
+            Gauge.builder("filmorate.datasource.replica.lag", dataSources, sources -> sources.lagMs(index))
+                    .description("Отставание реплики от основной БД, мс")
+                    .tag("replica", "replica-" + i)
+                    .register(meterRegistry);
+        }
+        return dataSources;
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(ReplicaDataSources replicaDataSources) {
+        return new LazyConnectionDataSourceProxy(new ReplicaRoutingDataSource(replicaDataSources));
+    }
+
+    @Bean
+    public ReadYourWritesFilter readYourWritesFilter(ReplicaProperties replicaProperties) {
+        return new ReadYourWritesFilter(replicaProperties.getStickinessMs());
+    }
+
+    private static void bindPoolSettings(HikariDataSource dataSource, Environment environment,
+                                         MeterRegistry meterRegistry, String poolName) {
+        Binder.get(environment).bind("spring.datasource.hikari", Bindable.ofInstance(dataSource));
+        dataSource.setPoolName(poolName);
+        dataSource.setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(meterRegistry));
+    }
+}
@@ -0,0 +1,51 @@
+package ru.yandex.practicum.filmorate.config;
+
+import org.springframework.jdbc.datasource.AbstractDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * Отправляет соединения только для чтения ({@code @Transactional(readOnly = true)}) на реплики,
+ * а всё остальное — на основную БД. Должен стоять за {@code LazyConnectionDataSourceProxy},
+ * чтобы соединение бралось уже после того, как известен признак readOnly.
+ */
+public class ReplicaRoutingDataSource extends AbstractDataSource {
+    private static final ThreadLocal<Boolean> STICK_TO_PRIMARY = new ThreadLocal<>();
+
+    private final ReplicaDataSources dataSources;
+
+    ReplicaRoutingDataSource(ReplicaDataSources dataSources) {
+        this.dataSources = dataSources;
+    }
+
+    /**
+     * Все чтения текущего потока пойдут на основную БД: клиент должен видеть собственные изменения.
+     */
+    static void stickToPrimary() {
+        STICK_TO_PRIMARY.set(Boolean.TRUE);
+    }
+
+    static void release() {
+        STICK_TO_PRIMARY.remove();
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return target().getConnection();
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return target().getConnection(username, password);
+    }
+
+    private DataSource target() {
+        if (TransactionSynchronizationManager.isCurrentTransactionReadOnly() && STICK_TO_PRIMARY.get() == null) {
+            return dataSources.forRead();
+        }
+        return dataSources.primary();
+    }
+}
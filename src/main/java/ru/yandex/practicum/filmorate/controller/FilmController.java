@@ -1,21 +1,57 @@
 package ru.yandex.practicum.filmorate.controller;
 
-import lombok.RequiredArgsConstructor;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import jakarta.servlet.http.HttpServletResponse;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.context.request.async.WebAsyncTask;
+import ru.yandex.practicum.filmorate.exception.ValidateException;
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmImportResult;
+import ru.yandex.practicum.filmorate.model.FilmPatch;
+import ru.yandex.practicum.filmorate.model.Page;
 import ru.yandex.practicum.filmorate.service.FilmService;
+import ru.yandex.practicum.filmorate.service.SingleFlight;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.Iterator;
 import java.util.List;
 
 @Validated
 @Slf4j
-@RequiredArgsConstructor
 @RestController
 @RequestMapping("films")
 public class FilmController {
+    public static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+    public static final String NDJSON = "application/x-ndjson";
+
     private final FilmService filmService;
+    private final ObjectMapper objectMapper;
+    private final long streamTimeoutMs;
+
+    /**
+     * @param streamTimeoutMs сколько может отдаваться {@code /films/stream}; у остальных асинхронных ответов
+     *                        остаётся общий {@code spring.mvc.async.request-timeout}
+     */
+    public FilmController(FilmService filmService, ObjectMapper objectMapper,
+                          @Value("${filmorate.films.stream-timeout-ms:3600000}") long streamTimeoutMs) {
+        this.filmService = filmService;
+        this.objectMapper = objectMapper;
+        this.streamTimeoutMs = streamTimeoutMs;
+    }
 
     @PostMapping
     public Film create(@RequestBody Film film) {
@@ -24,6 +60,38 @@ public class FilmController {
         return film;
     }
 
+    @PostMapping(value = "/batch", consumes = {MediaType.APPLICATION_JSON_VALUE, NDJSON})
+    public List<FilmImportResult> importFilms(InputStream body) throws IOException {
+        log.info("POST / films / batch");
+        try (MappingIterator<Film> films = objectMapper.readerFor(Film.class).readValues(body)) {
+            return filmService.importFilms(new Iterator<>() {
+                @Override
+                public boolean hasNext() {
+                    try {
+                        return films.hasNextValue();
+                    } catch (JsonProcessingException e) {
+                        throw new ValidateException("Некорректный JSON: " + e.getOriginalMessage());
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                }
+
+                @Override
+                public Film next() {
+                    try {
+                        return films.nextValue();
+                    } catch (JsonMappingException e) {
+                        return null;
+                    } catch (JsonProcessingException e) {
+                        throw new ValidateException("Некорректный JSON: " + e.getOriginalMessage());
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                }
+            });
+        }
+    }
+
     @PutMapping
     public Film update(@RequestBody Film film) {
         log.info("PUT / film / {}", film.getName());
@@ -31,15 +99,57 @@ public class FilmController {
         return film;
     }
 
+    @PatchMapping("/{id}")
+    public Film patch(@PathVariable("id") int id, @RequestBody FilmPatch patch) {
+        log.info("PATCH / film / {}", id);
+        return filmService.patch(id, patch);
+    }
+
     @GetMapping
     public List<Film> findAllFilms() {
         log.info("GET / films");
         return filmService.findAllFilms();
     }
 
+    @GetMapping(value = {"", "/stream"}, produces = NDJSON)
+    public WebAsyncTask<Void> streamAllFilms(HttpServletResponse response) {
+        log.info("GET / films / stream");
+        ObjectWriter writer = objectMapper.writerFor(Film.class)
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        response.setContentType(NDJSON);
+        return new WebAsyncTask<>(streamTimeoutMs, () -> {
+            try (JsonGenerator generator = objectMapper.getFactory().createGenerator(response.getOutputStream())) {
+                generator.setRootValueSeparator(null);
+                filmService.streamAllFilms(film -> {
+                    try {
+                        writer.writeValue(generator, film);
+                        generator.writeRaw('\n');
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            }
+            return null;
+        });
+    }
+
+    @GetMapping(params = "limit")
+    public List<Film> findFilmsPage(@RequestParam(required = false) String after, @RequestParam int limit,
+                                    HttpServletResponse response) {
+        log.info("GET / films / after {} / limit {}", after, limit);
+        Page<Film> page = filmService.findFilmsPage(after, limit);
+        if (page.getNext() != null) {
+            response.setHeader(NEXT_CURSOR_HEADER, page.getNext());
+        }
+        return page.getItems();
+    }
+
     @GetMapping("/{id}")
-    public Film findFilmById(@PathVariable("id") int id) {
+    public Film findFilmById(@PathVariable("id") int id, WebRequest request) {
         log.info("GET / {}", id);
+        if (request.checkNotModified(filmService.filmTag(id))) {
+            return null;
+        }
         return filmService.findFilmById(id);
     }
 
@@ -55,9 +165,29 @@ public class FilmController {
         filmService.removeLike(id, userId);
     }
 
+    @GetMapping("/search")
+    public List<Film> searchFilms(@RequestParam String q,
+                                  @RequestParam(defaultValue = "name,description") String by,
+                                  @RequestParam(defaultValue = "10") int count) {
+        log.info("GET / search / {} / by {}", q, by);
+        return filmService.searchFilms(q, by, count);
+    }
+
     @GetMapping("/popular")
-    public List<Film> findPopular(@RequestParam(defaultValue = "10") int count) {
-        log.info("GET / popular");
-        return filmService.findPopular(count);
+    public List<Film> findPopular(@RequestParam(defaultValue = "10") int count,
+                                  @RequestParam(required = false) Integer genreId,
+                                  @RequestParam(required = false) Integer mpaId,
+                                  @RequestParam(required = false) Integer year,
+                                  WebRequest request, HttpServletResponse response) {
+        log.info("GET / popular / genre {} / mpa {} / year {}", genreId, mpaId, year);
+        String tag = filmService.popularTag(count, genreId, mpaId);
+        if (request.checkNotModified(tag)) {
+            return null;
+        }
+        SingleFlight.Versioned<List<Film>> popular = filmService.findPopularWithTag(count, genreId, mpaId, year);
+        if (!popular.version().equals(tag)) {
+            response.setHeader(HttpHeaders.ETAG, popular.version());
+        }
+        return popular.value();
     }
 }
\ No newline at end of file
@@ -5,6 +5,7 @@ import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
 import ru.yandex.practicum.filmorate.model.Genre;
 import ru.yandex.practicum.filmorate.service.FilmService;
 
@@ -18,12 +19,20 @@ public class GenreController {
     private final FilmService filmService;
 
     @GetMapping
-    public List<Genre> findAllGenres() {
+    public List<Genre> findAllGenres(WebRequest request) {
+        if (request.checkNotModified(filmService.referenceDataTag())) {
+            return null;
+        }
         return filmService.findAllGenres();
     }
 
     @GetMapping("/{id}")
-    public Genre findGenreByID(@PathVariable int id) {
-        return filmService.findGenreById(id);
+    public Genre findGenreByID(@PathVariable int id, WebRequest request) {
+        String tag = filmService.referenceDataTag();
+        Genre genre = filmService.findGenreById(id);
+        if (request.checkNotModified(tag)) {
+            return null;
+        }
+        return genre;
     }
 }
@@ -5,6 +5,7 @@ import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
 import ru.yandex.practicum.filmorate.model.Mpa;
 import ru.yandex.practicum.filmorate.service.FilmService;
 
@@ -17,12 +18,20 @@ public class MpaController {
     private final FilmService filmService;
 
     @GetMapping
-    public List<Mpa> findAllMpa() {
+    public List<Mpa> findAllMpa(WebRequest request) {
+        if (request.checkNotModified(filmService.referenceDataTag())) {
+            return null;
+        }
         return filmService.findAllMpa();
     }
 
     @GetMapping("/{id}")
-    public Mpa findMpaByID(@PathVariable int id) {
-        return filmService.findMpaById(id);
+    public Mpa findMpaByID(@PathVariable int id, WebRequest request) {
+        String tag = filmService.referenceDataTag();
+        Mpa mpa = filmService.findMpaById(id);
+        if (request.checkNotModified(tag)) {
+            return null;
+        }
+        return mpa;
     }
 }
@@ -1,9 +1,13 @@
 package ru.yandex.practicum.filmorate.controller;
 
+import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpStatus;
 import org.springframework.web.bind.annotation.*;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Page;
 import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.service.FilmService;
 import ru.yandex.practicum.filmorate.service.UserService;
 
 import java.util.Collection;
@@ -15,6 +19,7 @@ import java.util.List;
 public class UserController {
 
     private final UserService userService;
+    private final FilmService filmService;
 
     @GetMapping
     @ResponseStatus(HttpStatus.OK)
@@ -22,6 +27,12 @@ public class UserController {
         return userService.findAll();
     }
 
+    @GetMapping(params = "limit")
+    public List<User> getUsersPage(@RequestParam(required = false) String after, @RequestParam int limit,
+                                   HttpServletResponse response) {
+        return withNextCursor(userService.findUsersPage(after, limit), response);
+    }
+
     @GetMapping("{id}")
     @ResponseStatus(HttpStatus.OK)
     public User getUserByID(@PathVariable("id") int userID) {
@@ -54,8 +65,31 @@ public class UserController {
         return userService.findAllFriends(id);
     }
 
+    @GetMapping(value = "/{id}/friends", params = "limit")
+    public List<User> findFriendsPage(@PathVariable("id") int id, @RequestParam(required = false) String after,
+                                      @RequestParam int limit, HttpServletResponse response) {
+        return withNextCursor(userService.findFriendsPage(id, after, limit), response);
+    }
+
     @GetMapping("/{id}/friends/common/{otherId}")
     public List<User> findCommonFriends(@PathVariable("id") int id, @PathVariable("otherId") int otherId) {
         return userService.findCommonFriends(id, otherId);
     }
+
+    @GetMapping("/{id}/friends/suggestions")
+    public List<User> findSuggestions(@PathVariable("id") int id, @RequestParam(defaultValue = "10") int limit) {
+        return userService.findSuggestions(id, limit);
+    }
+
+    @GetMapping("/{id}/recommendations")
+    public List<Film> findRecommendations(@PathVariable("id") int id, @RequestParam(defaultValue = "10") int count) {
+        return filmService.findRecommendations(id, count);
+    }
+
+    private List<User> withNextCursor(Page<User> page, HttpServletResponse response) {
+        if (page.getNext() != null) {
+            response.setHeader(FilmController.NEXT_CURSOR_HEADER, page.getNext());
+        }
+        return page.getItems();
+    }
 }
\ No newline at end of file
@@ -0,0 +1,39 @@
+package ru.yandex.practicum.filmorate.dao;
+
+import org.springframework.jdbc.core.ResultSetExtractor;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Собирает пары (from_id, to_id), отсортированные по from_id и to_id, в отсортированные массивы to_id.
+ */
+final class AdjacencyExtractor implements ResultSetExtractor<Map<Integer, int[]>> {
+
+    @Override
+    public Map<Integer, int[]> extractData(ResultSet rs) throws SQLException {
+        Map<Integer, int[]> adjacency = new HashMap<>();
+        int currentId = 0;
+        int size = 0;
+        int[] buffer = new int[16];
+        while (rs.next()) {
+            int fromId = rs.getInt("from_id");
+            if (size > 0 && fromId != currentId) {
+                adjacency.put(currentId, Arrays.copyOf(buffer, size));
+                size = 0;
+            }
+            currentId = fromId;
+            if (size == buffer.length) {
+                buffer = Arrays.copyOf(buffer, size * 2);
+            }
+            buffer[size++] = rs.getInt("to_id");
+        }
+        if (size > 0) {
+            adjacency.put(currentId, Arrays.copyOf(buffer, size));
+        }
+        return adjacency;
+    }
+}
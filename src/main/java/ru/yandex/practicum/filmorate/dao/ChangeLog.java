@@ -0,0 +1,93 @@
+package ru.yandex.practicum.filmorate.dao;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.sql.Types;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Журнал изменений в таблице change_log, по которому другие узлы обновляют свои кэши в памяти
+ * (см. {@link ChangeLogPoller}). Запись делается в той же транзакции, что и само изменение,
+ * поэтому запись журнала видна тогда и только тогда, когда видно изменение.
+ */
+@Component
+@RequiredArgsConstructor
+public class ChangeLog {
+    private static final String INSERT_CHANGE = "INSERT INTO change_log (node, kind, first_id, second_id) " +
+            "VALUES (?, ?, ?, ?)";
+
+    /**
+     * Узел, сделавший запись: свои записи узел пропускает, его кэши обновляются сразу при изменении.
+     */
+    @Getter
+    private final String node = UUID.randomUUID().toString();
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public enum Kind {
+        /** Создан или изменён пользователь {@code first_id}. */
+        USER,
+        /** Создан или изменён фильм {@code first_id}: поля, жанры или MPA. */
+        FILM,
+        /** Пользователь {@code second_id} поставил или убрал лайк фильму {@code first_id}. */
+        LIKE,
+        /** Пересчитан films.like_count фильма {@code first_id}. */
+        LIKE_COUNT,
+        /** Пересчитан films.like_count всех фильмов. */
+        ALL_LIKE_COUNTS,
+        /** Пользователь {@code first_id} добавил или удалил друга {@code second_id}. */
+        FRIENDSHIP,
+        /** Изменены строки mpa_rating или genres. */
+        REFERENCE_DATA
+    }
+
+    public void userChanged(int userId) {
+        record(Kind.USER, userId, null);
+    }
+
+    public void filmChanged(int filmId) {
+        record(Kind.FILM, filmId, null);
+    }
+
+    public void filmsChanged(Kind kind, List<Integer> filmIds) {
+        checkTransaction();
+        jdbcTemplate.batchUpdate(INSERT_CHANGE, filmIds, filmIds.size(), (ps, filmId) -> {
+            ps.setString(1, node);
+            ps.setString(2, kind.name());
+            ps.setInt(3, filmId);
+            ps.setNull(4, Types.INTEGER);
+        });
+    }
+
+    public void allLikeCountsChanged() {
+        record(Kind.ALL_LIKE_COUNTS, 0, null);
+    }
+
+    public void likeChanged(int filmId, int userId) {
+        record(Kind.LIKE, filmId, userId);
+    }
+
+    public void friendshipChanged(int userId, int friendId) {
+        record(Kind.FRIENDSHIP, userId, friendId);
+    }
+
+    public void referenceDataChanged() {
+        record(Kind.REFERENCE_DATA, 0, null);
+    }
+
+    private void record(Kind kind, int firstId, Integer secondId) {
+        checkTransaction();
+        jdbcTemplate.update(INSERT_CHANGE, node, kind.name(), firstId, secondId);
+    }
+
+    private static void checkTransaction() {
+        if (!TransactionSynchronizationManager.isActualTransactionActive()) {
+            throw new IllegalStateException("Запись журнала изменений вне транзакции изменения");
+        }
+    }
+}
@@ -0,0 +1,236 @@
+package ru.yandex.practicum.filmorate.dao;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.storage.ContentVersions;
+
+import java.lang.management.ManagementFactory;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Применяет к кэшам в памяти этого узла изменения, записанные в {@link ChangeLog} другими узлами.
+ * Изменение не переносится как разница, а перечитывается из БД, поэтому повторное применение безопасно.
+ * Identity выдаётся при вставке, а видна запись после коммита, поэтому запись с меньшим id может появиться
+ * позже записи с большим: пропущенные id перечитываются при каждом опросе, пока не найдутся
+ * или не истечёт gap-timeout-ms (откаченная транзакция оставляет дыру навсегда).
+ */
+@Slf4j
+@Component
+public class ChangeLogPoller {
+    private static final String SELECT_CHANGES = "SELECT id, node, kind, first_id, second_id, " +
+            "DATEDIFF('MILLISECOND', created_at, LOCALTIMESTAMP) AS age " +
+            "FROM change_log ";
+
+    /**
+     * Первая запись, сделанная после старта JVM: кэши загружены позже, повторное применение ничего не портит.
+     */
+    private static final String SELECT_START = "SELECT COALESCE(MIN(id) - 1, " +
+            "(SELECT COALESCE(MAX(id), 0) FROM change_log)) " +
+            "FROM change_log WHERE created_at >= DATEADD('MILLISECOND', ?, LOCALTIMESTAMP)";
+
+    private static final String DELETE_EXPIRED = "DELETE FROM change_log " +
+            "WHERE created_at < DATEADD('MILLISECOND', ?, LOCALTIMESTAMP)";
+
+    private static final long START_MARGIN_MS = 1000;
+    private static final int MAX_GAPS = 10_000;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ChangeLog changeLog;
+    private final FilmPopularityIndex popularityIndex;
+    private final FilmSearchIndex searchIndex;
+    private final FriendGraphIndex friendGraph;
+    private final IdExistenceFilter existingIds;
+    private final ReferenceDataRegistry referenceData;
+    private final ContentVersions versions;
+    private final int batchSize;
+    private final long gapTimeoutNanos;
+    private final long retentionMs;
+    private final Timer lagTimer;
+    private final Counter lostGaps;
+
+    private long position;
+    private final NavigableMap<Long, Long> gaps = new TreeMap<>();
+
+    public ChangeLogPoller(JdbcTemplate jdbcTemplate, ChangeLog changeLog, FilmPopularityIndex popularityIndex,
+                           FilmSearchIndex searchIndex, FriendGraphIndex friendGraph, IdExistenceFilter existingIds,
+                           ReferenceDataRegistry referenceData, ContentVersions versions, MeterRegistry meterRegistry,
+                           @Value("${filmorate.change-log.batch-size:1000}") int batchSize,
+                           @Value("${filmorate.change-log.gap-timeout-ms:10000}") long gapTimeoutMs,
+                           @Value("${filmorate.change-log.retention-ms:3600000}") long retentionMs) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.changeLog = changeLog;
+        this.popularityIndex = popularityIndex;
+        this.searchIndex = searchIndex;
+        this.friendGraph = friendGraph;
+        this.existingIds = existingIds;
+        this.referenceData = referenceData;
+        this.versions = versions;
+        this.batchSize = batchSize;
+        this.gapTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(gapTimeoutMs);
+        this.retentionMs = retentionMs;
+        this.lagTimer = Timer.builder("filmorate.changelog.lag")
+                .description("Время от изменения на другом узле до обновления кэшей этого узла")
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
+        this.lostGaps = Counter.builder("filmorate.changelog.gaps.expired")
+                .description("Пропуски id журнала, так и не заполненные за gap-timeout-ms")
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    public synchronized void start() {
+        long since = ManagementFactory.getRuntimeMXBean().getUptime() + START_MARGIN_MS;
+        Long start = jdbcTemplate.queryForObject(SELECT_START, Long.class, -since);
+        position = start == null ? 0 : start;
+        log.info("Журнал изменений читается после id {}, узел {}", position, changeLog.getNode());
+    }
+
+    @Scheduled(fixedDelayString = "${filmorate.change-log.poll-interval-ms:100}")
+    public synchronized void poll() {
+        try {
+            long readAt = System.nanoTime();
+            List<Change> changes = new ArrayList<>(findGaps(readAt));
+            List<Change> next = jdbcTemplate.query(SELECT_CHANGES + "WHERE id > ? ORDER BY id LIMIT ?",
+                    this::makeChange, position, batchSize);
+            changes.addAll(next);
+            apply(changes, readAt);
+            for (Change change : next) {
+                for (long missing = position + 1; missing < change.id(); missing++) {
+                    addGap(missing, readAt);
+                }
+                position = change.id();
+            }
+        } catch (DataAccessException e) {
+            log.warn("Не удалось прочитать журнал изменений, повтор при следующем опросе", e);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${filmorate.change-log.cleanup-interval-ms:60000}")
+    public void cleanup() {
+        int deleted = jdbcTemplate.update(DELETE_EXPIRED, -retentionMs);
+        if (deleted > 0) {
+            log.debug("Из журнала изменений удалено {} записей", deleted);
+        }
+    }
+
+    private List<Change> findGaps(long now) {
+        Iterator<Map.Entry<Long, Long>> expired = gaps.entrySet().iterator();
+        while (expired.hasNext()) {
+            if (expired.next().getValue() - now < 0) {
+                expired.remove();
+                lostGaps.increment();
+            }
+        }
+        if (gaps.isEmpty()) {
+            return List.of();
+        }
+        List<Long> ids = new ArrayList<>(gaps.keySet()).subList(0, Math.min(gaps.size(), batchSize));
+        String in = String.join(",", Collections.nCopies(ids.size(), "?"));
+        List<Change> found = jdbcTemplate.query(SELECT_CHANGES + "WHERE id IN (" + in + ")", this::makeChange,
+                ids.toArray());
+        found.forEach(change -> gaps.remove(change.id()));
+        return found;
+    }
+
+    private void addGap(long id, long now) {
+        if (gaps.size() < MAX_GAPS) {
+            gaps.put(id, now + gapTimeoutNanos);
+        } else {
+            lostGaps.increment();
+        }
+    }
+
+    /**
+     * Сначала обновляет кэши, потом версии: ответ с новым ETag не может быть собран по старому кэшу.
+     */
+    private void apply(List<Change> changes, long readAt) {
+        Set<Integer> users = new LinkedHashSet<>();
+        Set<Integer> films = new LinkedHashSet<>();
+        Set<Integer> likedFilms = new LinkedHashSet<>();
+        Set<Integer> countedFilms = new LinkedHashSet<>();
+        boolean allLikeCounts = false;
+        boolean friendships = false;
+        boolean referenceDataChanged = false;
+        List<Change> applied = new ArrayList<>(changes.size());
+        for (Change change : changes) {
+            if (change.node().equals(changeLog.getNode())) {
+                continue;
+            }
+            applied.add(change);
+            switch (change.kind()) {
+                case USER -> users.add(change.firstId());
+                case FILM -> films.add(change.firstId());
+                case LIKE -> likedFilms.add(change.firstId());
+                case LIKE_COUNT -> countedFilms.add(change.firstId());
+                case ALL_LIKE_COUNTS -> allLikeCounts = true;
+                case FRIENDSHIP -> {
+                    friendGraph.refresh(change.firstId(), change.secondId());
+                    friendships = true;
+                }
+                case REFERENCE_DATA -> referenceDataChanged = true;
+            }
+        }
+        if (applied.isEmpty()) {
+            if (popularityIndex.refresh(Set.of())) {
+                versions.likesChanged();
+            }
+            return;
+        }
+        users.forEach(existingIds::addUser);
+        films.forEach(existingIds::addFilm);
+        Set<Integer> ranked = new LinkedHashSet<>(films);
+        ranked.addAll(likedFilms);
+        boolean retried = popularityIndex.refresh(ranked);
+        searchIndex.refresh(films);
+        if (referenceDataChanged) {
+            referenceData.reload();
+        }
+
+        users.forEach(versions::userChanged);
+        if (friendships) {
+            versions.friendsChanged();
+        }
+        films.forEach(versions::filmChanged);
+        countedFilms.forEach(versions::filmChanged);
+        if (!likedFilms.isEmpty() || retried) {
+            versions.likesChanged();
+        }
+        if (allLikeCounts) {
+            versions.allFilmsChanged();
+        }
+        long appliedIn = System.nanoTime() - readAt;
+        for (Change change : applied) {
+            lagTimer.record(TimeUnit.MILLISECONDS.toNanos(Math.max(0, change.age())) + appliedIn,
+                    TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private Change makeChange(ResultSet rs, int rowNum) throws SQLException {
+        int secondId = rs.getInt("second_id");
+        boolean noSecondId = rs.wasNull();
+        return new Change(rs.getLong("id"), rs.getString("node"), ChangeLog.Kind.valueOf(rs.getString("kind")),
+                rs.getInt("first_id"), noSecondId ? null : secondId, rs.getLong("age"));
+    }
+
+    private record Change(long id, String node, ChangeLog.Kind kind, int firstId, Integer secondId, long age) {
+    }
+}
@@ -6,82 +6,289 @@ import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.support.GeneratedKeyHolder;
 import org.springframework.jdbc.support.KeyHolder;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmPatch;
 import ru.yandex.practicum.filmorate.model.Genre;
 import ru.yandex.practicum.filmorate.model.Mpa;
+import ru.yandex.practicum.filmorate.storage.ContentVersions;
 import ru.yandex.practicum.filmorate.storage.FilmStorage;
 
 import java.sql.Date;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+import static java.util.function.UnaryOperator.identity;
 
 @RequiredArgsConstructor
 @Repository
 public class FilmDbStorage implements FilmStorage {
     private final JdbcTemplate jdbcTemplate;
+    private final FilmPopularityIndex popularityIndex;
+    private final TransactionTemplate transactionTemplate;
+    private final FilmSearchIndex searchIndex;
+    private final ContentVersions versions;
+    private final ReferenceDataRegistry referenceData;
+    private final IdExistenceFilter existingIds;
+    private final ChangeLog changeLog;
 
     private static final String SELECT_FILMS = "SELECT f.film_id, f.name, f.description, f.releaseDate, f.duration, " +
-            "mpa.rating_id, mpa.name AS mpa_name " +
+            "f.like_count, f.version, mpa.rating_id, mpa.name AS mpa_name " +
             "FROM films AS f " +
             "INNER JOIN mpa_rating AS mpa ON f.rating_id = mpa.rating_id ";
 
+    private static final String SELECT_FILMS_WITH_GENRES = "SELECT f.film_id, f.name, f.description, " +
+            "f.releaseDate, f.duration, f.like_count, f.version, mpa.rating_id, mpa.name AS mpa_name, " +
+            "g.genre_id, g.name AS genre_name " +
+            "FROM films AS f " +
+            "INNER JOIN mpa_rating AS mpa ON f.rating_id = mpa.rating_id " +
+            "LEFT JOIN film_genres AS fg ON fg.film_id = f.film_id " +
+            "LEFT JOIN genres AS g ON g.genre_id = fg.genre_id " +
+            "ORDER BY f.film_id, fg.id";
+
+    /**
+     * Изменяет фильм и сразу возвращает его новую строку; пустой результат — фильма нет или версия устарела.
+     */
+    private static final String PATCH_FILM = "SELECT f.film_id, f.name, f.description, f.releaseDate, " +
+            "f.duration, f.like_count, f.version, mpa.rating_id, mpa.name AS mpa_name " +
+            "FROM FINAL TABLE (UPDATE films SET %sversion = version + 1 WHERE film_id = ?%s) AS f " +
+            "INNER JOIN mpa_rating AS mpa ON f.rating_id = mpa.rating_id";
+
+    private static final int STREAM_FETCH_SIZE = 500;
+
 
     @Override
     public Film create(Film film) {
 
         String sql = "INSERT INTO films (name, description, releaseDate, duration, rating_id) VALUES (?, ?, ?, ?, ?)";
 
-        KeyHolder keyHolder = new GeneratedKeyHolder();
-        jdbcTemplate.update(
-                connection -> {
-                    PreparedStatement ps = connection.prepareStatement(sql, new String[]{"film_id"});
-                    ps.setString(1, film.getName());
-                    ps.setString(2, film.getDescription());
-                    ps.setDate(3, Date.valueOf(film.getReleaseDate()));
-                    ps.setInt(4, film.getDuration());
-                    ps.setInt(5, film.getMpa().getId());
-                    return ps;
-                }, keyHolder);
-        film.setId(Objects.requireNonNull(keyHolder.getKey()).intValue());
-        updateGenres(film.getGenres(), film.getId());
+        popularityIndex.index(() -> transactionTemplate.execute(status -> {
+            KeyHolder keyHolder = new GeneratedKeyHolder();
+            jdbcTemplate.update(
+                    connection -> {
+                        PreparedStatement ps = connection.prepareStatement(sql, new String[]{"film_id"});
+                        ps.setString(1, film.getName());
+                        ps.setString(2, film.getDescription());
+                        ps.setDate(3, Date.valueOf(film.getReleaseDate()));
+                        ps.setInt(4, film.getDuration());
+                        ps.setInt(5, film.getMpa().getId());
+                        return ps;
+                    }, keyHolder);
+            film.setId(Objects.requireNonNull(keyHolder.getKey()).intValue());
+            film.setLikeCount(0);
+            film.setVersion(0);
+            insertGenres(List.of(film));
+            changeLog.filmChanged(film.getId());
+            return List.of(film);
+        }));
+        existingIds.addFilm(film.getId());
+        searchIndex.index(film.getId(), film.getName(), film.getDescription());
+        versions.filmChanged(film.getId());
         return film;
     }
 
     @Override
-    public Film update(Film film) {
+    public List<Film> createAll(List<Film> films) {
+        String sql = "INSERT INTO films (name, description, releaseDate, duration, rating_id) VALUES (?, ?, ?, ?, ?)";
+        popularityIndex.index(() -> transactionTemplate.execute(status -> {
+            KeyHolder keyHolder = new GeneratedKeyHolder();
+            jdbcTemplate.batchUpdate(
+                    connection -> connection.prepareStatement(sql, new String[]{"film_id"}),
+                    new BatchPreparedStatementSetter() {
+                        @Override
+                        public void setValues(PreparedStatement ps, int i) throws SQLException {
+                            Film film = films.get(i);
+                            ps.setString(1, film.getName());
+                            ps.setString(2, film.getDescription());
+                            ps.setDate(3, Date.valueOf(film.getReleaseDate()));
+                            ps.setInt(4, film.getDuration());
+                            ps.setInt(5, film.getMpa().getId());
+                        }
+
+                        public int getBatchSize() {
+                            return films.size();
+                        }
+                    },
+                    keyHolder);
+            List<Map<String, Object>> keys = keyHolder.getKeyList();
+            for (int i = 0; i < films.size(); i++) {
+                films.get(i).setId(((Number) keys.get(i).get("film_id")).intValue());
+                films.get(i).setLikeCount(0);
+                films.get(i).setVersion(0);
+            }
+            insertGenres(films);
+            changeLog.filmsChanged(ChangeLog.Kind.FILM, films.stream().map(Film::getId).toList());
+            return films;
+        }));
+        films.forEach(film -> {
+            existingIds.addFilm(film.getId());
+            searchIndex.index(film.getId(), film.getName(), film.getDescription());
+            versions.filmChanged(film.getId());
+        });
+        return films;
+    }
+
+    @Override
+    public Optional<Film> update(Film film) {
         int id = film.getId();
-        String sql = "UPDATE films SET name = ?, description = ?, releaseDate = ?, duration = ?, rating_id = ? " +
-                "WHERE film_id = ?";
-        jdbcTemplate.update(sql, film.getName(), film.getDescription(), film.getReleaseDate(), film.getDuration(),
-                film.getMpa().getId(), id);
-        updateGenres(film.getGenres(), id);
+        List<Object> args = new ArrayList<>(List.of(film.getName(), film.getDescription(), film.getReleaseDate(),
+                film.getDuration(), film.getMpa().getId(), id));
+        String sql = "SELECT version FROM FINAL TABLE (UPDATE films " +
+                "SET name = ?, description = ?, releaseDate = ?, duration = ?, rating_id = ?, version = version + 1 " +
+                "WHERE film_id = ?" + versionCondition(film.getVersion(), args) + ")";
+        List<Film> updated = popularityIndex.index(() -> transactionTemplate.execute(status -> {
+            List<Integer> version = jdbcTemplate.queryForList(sql, Integer.class, args.toArray());
+            if (version.isEmpty()) {
+                return List.of();
+            }
+            film.setVersion(version.get(0));
+            syncGenres(id, film.getGenres());
+            changeLog.filmChanged(id);
+            return List.of(film);
+        }));
+        if (updated.isEmpty()) {
+            return Optional.empty();
+        }
+        searchIndex.index(id, film.getName(), film.getDescription());
+        versions.filmChanged(id);
+        return Optional.of(film);
+    }
+
+    @Override
+    public Optional<Film> patch(int id, FilmPatch patch) {
+        StringBuilder columns = new StringBuilder();
+        List<Object> args = new ArrayList<>();
+        setColumn(columns, args, "name", patch.getName());
+        setColumn(columns, args, "description", patch.getDescription());
+        setColumn(columns, args, "releaseDate", patch.getReleaseDate());
+        setColumn(columns, args, "duration", patch.getDuration());
+        setColumn(columns, args, "rating_id", patch.getMpa() == null ? null : patch.getMpa().getId());
+        if (columns.isEmpty() && patch.getGenres() == null) {
+            return findUnchanged(id, patch.getVersion());
+        }
+        args.add(id);
+        String sql = String.format(PATCH_FILM, columns, versionCondition(patch.getVersion(), args));
+        List<Film> patched = popularityIndex.index(() -> transactionTemplate.execute(status -> {
+            List<Film> films = jdbcTemplate.query(sql, (rs, rowNum) -> makeFilm(rs), args.toArray());
+            if (films.isEmpty()) {
+                return films;
+            }
+            addGenres(films.get(0), patch.getGenres() == null ? findGenreIds(id) : syncGenres(id, patch.getGenres()));
+            changeLog.filmChanged(id);
+            return films;
+        }));
+        if (patched.isEmpty()) {
+            return Optional.empty();
+        }
+        Film film = patched.get(0);
+        searchIndex.index(id, film.getName(), film.getDescription());
+        versions.filmChanged(id);
+        return Optional.of(film);
+    }
+
+    /**
+     * Пустое изменение: версия не растёт, фильм возвращается как есть, если он есть и версия совпадает.
+     */
+    private Optional<Film> findUnchanged(int id, Integer version) {
+        Optional<Film> film = findFilmById(id).filter(found -> version == null || version.equals(found.getVersion()));
+        film.ifPresent(found -> addGenres(found, findGenreIds(id)));
         return film;
     }
 
+    private void addGenres(Film film, Set<Integer> genreIds) {
+        for (Integer genreId : genreIds) {
+            film.getGenres().add(referenceData.findGenreById(genreId).orElseGet(() -> new Genre(genreId, null)));
+        }
+    }
+
     @Override
+    @Transactional(readOnly = true, propagation = Propagation.SUPPORTS)
     public List<Film> findAllFilms() {
         String sql = "ORDER BY f.film_id";
         return jdbcTemplate.query(SELECT_FILMS + sql, (rs, rowNum) -> makeFilm(rs));
     }
 
     @Override
+    @Transactional(readOnly = true, propagation = Propagation.SUPPORTS)
+    public void streamAllFilms(Consumer<Film> consumer) {
+        jdbcTemplate.query(
+                connection -> {
+                    PreparedStatement ps = connection.prepareStatement(SELECT_FILMS_WITH_GENRES,
+                            ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+                    ps.setFetchSize(STREAM_FETCH_SIZE);
+                    return ps;
+                },
+                rs -> {
+                    Film film = null;
+                    while (rs.next()) {
+                        int id = rs.getInt("film_id");
+                        if (film == null || film.getId() != id) {
+                            if (film != null) {
+                                consumer.accept(film);
+                            }
+                            film = makeFilm(rs);
+                        }
+                        int genreId = rs.getInt("genre_id");
+                        if (!rs.wasNull()) {
+                            film.getGenres().add(new Genre(genreId, rs.getString("genre_name")));
+                        }
+                    }
+                    if (film != null) {
+                        consumer.accept(film);
+                    }
+                    return null;
+                });
+    }
+
+    @Override
+    @Transactional(readOnly = true, propagation = Propagation.SUPPORTS)
+    public List<Film> findFilmsAfter(int afterId, int limit) {
+        String sql = "WHERE f.film_id > ? ORDER BY f.film_id LIMIT ?";
+        return jdbcTemplate.query(SELECT_FILMS + sql, (rs, rowNum) -> makeFilm(rs), afterId, limit);
+    }
+
+    @Override
+    @Transactional(readOnly = true, propagation = Propagation.SUPPORTS)
     public Optional<Film> findFilmById(int id) {
         String sql = "WHERE f.film_id = ?";
         return jdbcTemplate.query(SELECT_FILMS + sql, (rs, rowNum) -> makeFilm(rs), id).stream().findFirst();
     }
 
     @Override
-    public List<Film> findPopular(int count) {
-        String sql = "LEFT JOIN likes ON f.film_id = likes.film_id " +
-                "GROUP BY f.film_id " +
-                "ORDER BY COUNT(likes.film_id) DESC " +
-                "LIMIT ?";
-        return jdbcTemplate.query(SELECT_FILMS + sql, (rs, rowNum) -> makeFilm(rs), count);
+    @Transactional(readOnly = true, propagation = Propagation.SUPPORTS)
+    public List<Film> findFilmsByIds(List<Integer> ids) {
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        String sql = "WHERE f.film_id IN (%s)";
+        String inSql = String.join(",", Collections.nCopies(ids.size(), "?"));
+        Map<Integer, Film> filmById = jdbcTemplate.query(SELECT_FILMS + String.format(sql, inSql),
+                        (rs, rowNum) -> makeFilm(rs), ids.toArray()).stream()
+                .collect(Collectors.toMap(Film::getId, identity()));
+        return ids.stream().map(filmById::get).filter(Objects::nonNull).collect(Collectors.toList());
+    }
+
+    @Override
+    public boolean existsById(int id) {
+        return existingIds.filmExists(id);
+    }
+
+    @Override
+    public int[] searchFilmIds(String query, boolean byName, boolean byDescription, int count) {
+        return searchIndex.search(query, byName, byDescription, count);
     }
 
     private Film makeFilm(ResultSet rs) throws SQLException {
@@ -92,29 +299,79 @@ public class FilmDbStorage implements FilmStorage {
                 .description(rs.getString("description"))
                 .releaseDate(rs.getDate("releaseDate").toLocalDate())
                 .duration(rs.getInt("duration"))
+                .likeCount(rs.getInt("like_count"))
+                .version(rs.getInt("version"))
                 .mpa(new Mpa(rs.getInt("rating_id"), rs.getString("mpa_name")))
                 .build();
         return film;
     }
 
-    private void updateGenres(Set<Genre> genres, int id) {
-        jdbcTemplate.update("DELETE FROM film_genres WHERE film_id = ?", id);
-        if (genres.size() > 0) {
-            String sql = "INSERT INTO film_genres (film_id, genre_id) VALUES (?, ?)";
-            Genre[] g = genres.toArray(new Genre[genres.size()]);
-            jdbcTemplate.batchUpdate(
-                    sql,
-                    new BatchPreparedStatementSetter() {
-                        @Override
-                        public void setValues(PreparedStatement ps, int i) throws SQLException {
-                            ps.setInt(1, id);
-                            ps.setInt(2, g[i].getId());
-                        }
+    private static void setColumn(StringBuilder columns, List<Object> args, String column, Object value) {
+        if (value != null) {
+            columns.append(column).append(" = ?, ");
+            args.add(value);
+        }
+    }
 
-                        public int getBatchSize() {
-                            return genres.size();
-                        }
+    /**
+     * Условие на ожидаемую версию фильма; без версии изменение применяется безусловно.
+     */
+    private static String versionCondition(Integer version, List<Object> args) {
+        if (version == null) {
+            return "";
+        }
+        args.add(version);
+        return " AND version = ?";
+    }
+
+    private Set<Integer> findGenreIds(int id) {
+        return new LinkedHashSet<>(jdbcTemplate.queryForList(
+                "SELECT genre_id FROM film_genres WHERE film_id = ? ORDER BY id", Integer.class, id));
+    }
+
+    /**
+     * Приводит жанры фильма к {@code genres}, удаляя и добавляя только отличающиеся строки.
+     */
+    private Set<Integer> syncGenres(int id, Set<Genre> genres) {
+        Set<Integer> current = findGenreIds(id);
+        Set<Integer> wanted = new LinkedHashSet<>();
+        for (Genre genre : genres) {
+            wanted.add(genre.getId());
+        }
+        List<Integer> removed = new ArrayList<>(current);
+        removed.removeAll(wanted);
+        List<Integer> added = new ArrayList<>(wanted);
+        added.removeAll(current);
+        if (!removed.isEmpty()) {
+            jdbcTemplate.batchUpdate("DELETE FROM film_genres WHERE film_id = ? AND genre_id = ?", removed,
+                    removed.size(), (ps, genreId) -> {
+                        ps.setInt(1, id);
+                        ps.setInt(2, genreId);
+                    });
+        }
+        if (!added.isEmpty()) {
+            jdbcTemplate.batchUpdate("INSERT INTO film_genres (film_id, genre_id) VALUES (?, ?)", added,
+                    added.size(), (ps, genreId) -> {
+                        ps.setInt(1, id);
+                        ps.setInt(2, genreId);
                     });
         }
+        return wanted;
+    }
+
+    private void insertGenres(List<Film> films) {
+        List<int[]> rows = new ArrayList<>();
+        for (Film film : films) {
+            for (Genre genre : film.getGenres()) {
+                rows.add(new int[]{film.getId(), genre.getId()});
+            }
+        }
+        if (!rows.isEmpty()) {
+            String sql = "INSERT INTO film_genres (film_id, genre_id) VALUES (?, ?)";
+            jdbcTemplate.batchUpdate(sql, rows, rows.size(), (ps, row) -> {
+                ps.setInt(1, row[0]);
+                ps.setInt(2, row[1]);
+            });
+        }
     }
 }
\ No newline at end of file
@@ -0,0 +1,427 @@
+package ru.yandex.practicum.filmorate.dao;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Genre;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.function.IntSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Рейтинг фильмов по числу лайков, который держится в памяти и обновляется вместе с таблицей likes.
+ * Кроме общего рейтинга поддерживаются отдельные рейтинги по каждому жанру, рейтингу MPA и году выпуска;
+ * они меняются вместе с лайками и при смене жанров, MPA или даты выпуска фильма.
+ * Сверка с БД читает её без блокировок и исправляет только фильмы, которые за время чтения
+ * не лайкали и не переписывали на этом узле: для них прочитанное могло уже разойтись с рейтингом.
+ * Пропущенные фильмы исправит следующая сверка, а при перечитывании по журналу изменений — следующий опрос журнала.
+ */
+@Slf4j
+@Component
+public class FilmPopularityIndex {
+    private static final Comparator<Entry> ORDER = Comparator.comparingInt(Entry::likes).reversed()
+            .thenComparingInt(Entry::filmId);
+
+    private static final String SELECT_LIKE_COUNTS = "SELECT f.film_id, f.rating_id, " +
+            "EXTRACT(YEAR FROM f.releaseDate) AS release_year, COUNT(l.user_id) AS likes " +
+            "FROM films AS f " +
+            "LEFT JOIN likes AS l ON f.film_id = l.film_id %s" +
+            "GROUP BY f.film_id, f.rating_id, f.releaseDate";
+
+    private static final String SELECT_FILM_GENRES = "SELECT film_id, genre_id FROM film_genres%s";
+
+    /**
+     * Сколько раз подряд {@link #refresh} перечитывает фильмы, менявшиеся на этом узле во время чтения.
+     */
+    private static final int REFRESH_ATTEMPTS = 3;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final Map<Integer, Entry> entries = new HashMap<>();
+    private final Map<Integer, Classification> classifications = new HashMap<>();
+    private final NavigableSet<Entry> ranking = new TreeSet<>(ORDER);
+    private final Map<Integer, NavigableSet<Entry>> byGenre = new HashMap<>();
+    private final Map<Integer, NavigableSet<Entry>> byMpa = new HashMap<>();
+    private final Map<Integer, NavigableSet<Entry>> byYear = new HashMap<>();
+    private int[] likesById = new int[0];
+    private final Map<Integer, Integer> pending = new HashMap<>();
+    private final List<Set<Integer>> trackers = new ArrayList<>();
+    private final Set<Integer> deferred = new HashSet<>();
+
+    @Getter
+    private volatile long lastDrift;
+    @Getter
+    private volatile int lastDriftedFilms;
+
+    public FilmPopularityIndex(JdbcTemplate jdbcTemplate, MeterRegistry meterRegistry) {
+        this.jdbcTemplate = jdbcTemplate;
+        Gauge.builder("filmorate.popularity.drift", this, FilmPopularityIndex::getLastDrift)
+                .description("Лайки, на которые рейтинг популярности расходился с БД при последней сверке")
+                .register(meterRegistry);
+        Gauge.builder("filmorate.popularity.drift.films", this, FilmPopularityIndex::getLastDriftedFilms)
+                .description("Фильмы, исправленные в рейтинге популярности при последней сверке")
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void seed() {
+        Map<Integer, Snapshot> films = loadSnapshots(null);
+        synchronized (this) {
+            entries.clear();
+            classifications.clear();
+            ranking.clear();
+            byGenre.clear();
+            byMpa.clear();
+            byYear.clear();
+            likesById = new int[0];
+            films.forEach((filmId, film) -> {
+                classifications.put(filmId, film.classification());
+                put(filmId, film.likes());
+            });
+        }
+        log.info("Рейтинг популярности загружен: {} фильмов", films.size());
+    }
+
+    /**
+     * Выполняет запись фильмов в БД и учитывает жанры, MPA и год выпуска записанных фильмов в рейтингах.
+     * Новые фильмы попадают в рейтинги без лайков, у известных сохраняется число лайков.
+     */
+    public <T extends Collection<Film>> T index(Supplier<T> write) {
+        T films = write.get();
+        synchronized (this) {
+            for (Film film : films) {
+                classify(film.getId(), Classification.of(film));
+            }
+        }
+        return films;
+    }
+
+    public int addLike(int filmId, IntSupplier write) {
+        return change(filmId, write, 1);
+    }
+
+    public int removeLike(int filmId, IntSupplier write) {
+        return change(filmId, write, -1);
+    }
+
+    public synchronized List<Integer> findTop(int count) {
+        List<Integer> top = new ArrayList<>(Math.min(count, ranking.size()));
+        Iterator<Entry> iterator = ranking.iterator();
+        while (top.size() < count && iterator.hasNext()) {
+            top.add(iterator.next().filmId());
+        }
+        return top;
+    }
+
+    /**
+     * Самые популярные фильмы, подходящие под все заданные условия; {@code null} — условие не задано.
+     * Обходится самый короткий из рейтингов по заданным условиям, остальные условия проверяются по фильму.
+     */
+    public synchronized List<Integer> findTop(int count, Integer genreId, Integer mpaId, Integer year) {
+        if (genreId == null && mpaId == null && year == null) {
+            return findTop(count);
+        }
+        NavigableSet<Entry> shortest = shorter(null, byGenre, genreId);
+        shortest = shorter(shortest, byMpa, mpaId);
+        shortest = shorter(shortest, byYear, year);
+        List<Integer> top = new ArrayList<>(Math.min(count, shortest.size()));
+        Iterator<Entry> iterator = shortest.iterator();
+        while (top.size() < count && iterator.hasNext()) {
+            int filmId = iterator.next().filmId();
+            if (classifications.get(filmId).matches(genreId, mpaId, year)) {
+                top.add(filmId);
+            }
+        }
+        return top;
+    }
+
+    /**
+     * Число лайков для каждого из фильмов; для неизвестных фильмов — 0.
+     */
+    public synchronized int[] findLikes(int[] filmIds, int count) {
+        int[] likes = new int[count];
+        for (int i = 0; i < count; i++) {
+            likes[i] = filmIds[i] < likesById.length ? likesById[filmIds[i]] : 0;
+        }
+        return likes;
+    }
+
+    /**
+     * Обходит фильмы по убыванию числа лайков, пока {@code visitor} возвращает true.
+     */
+    public synchronized void forEachByLikes(LikesVisitor visitor) {
+        for (Entry entry : ranking) {
+            if (!visitor.visit(entry.filmId(), entry.likes())) {
+                return;
+            }
+        }
+    }
+
+    @FunctionalInterface
+    public interface LikesVisitor {
+        boolean visit(int filmId, int likes);
+    }
+
+    @Scheduled(fixedDelayString = "${filmorate.popular.reconcile-interval-ms:300000}",
+            initialDelayString = "${filmorate.popular.reconcile-interval-ms:300000}")
+    public void reconcile() {
+        Sync sync = sync(null);
+        lastDrift = sync.drift();
+        lastDriftedFilms = sync.driftedFilms();
+        if (sync.driftedFilms() > 0) {
+            log.warn("Рейтинг популярности расходился с БД: фильмов {}, лайков {}", sync.driftedFilms(), sync.drift());
+        }
+        if (!sync.skipped().isEmpty()) {
+            log.debug("Сверка пропустила {} фильмов, изменённых во время чтения БД", sync.skipped().size());
+        }
+    }
+
+    /**
+     * Перечитывает из БД лайки, жанры, MPA и год выпуска фильмов, изменённых в обход этого узла, и фильмов,
+     * отложенных прошлыми вызовами. Фильм, который менялся на этом узле во время каждого из нескольких чтений,
+     * снова откладывается до следующего вызова: запись лайков и фильмов не ждёт перечитывания.
+     *
+     * @return были ли среди перечитанных фильмов отложенные ранее
+     */
+    public boolean refresh(Collection<Integer> filmIds) {
+        Set<Integer> remaining = new LinkedHashSet<>(filmIds);
+        boolean retried;
+        synchronized (this) {
+            retried = !deferred.isEmpty();
+            remaining.addAll(deferred);
+            deferred.clear();
+        }
+        for (int attempt = 0; attempt < REFRESH_ATTEMPTS && !remaining.isEmpty(); attempt++) {
+            remaining = new LinkedHashSet<>(sync(remaining).skipped());
+        }
+        if (!remaining.isEmpty()) {
+            synchronized (this) {
+                deferred.addAll(remaining);
+            }
+            log.debug("Рейтинг популярности отложил перечитывание {} фильмов", remaining.size());
+        }
+        return retried;
+    }
+
+    private int change(int filmId, IntSupplier write, int sign) {
+        begin(filmId);
+        try {
+            int rows = write.getAsInt();
+            if (rows > 0) {
+                apply(filmId, sign * rows);
+            }
+            return rows;
+        } finally {
+            end(filmId);
+        }
+    }
+
+    /**
+     * Приводит фильмы {@code filmIds} (или, если {@code null}, все) к состоянию в БД. БД читается без блокировок;
+     * фильмы, лайк которых записывался во время чтения, или переписанные за это время, не трогаются
+     * и возвращаются в {@link Sync#skipped()}.
+     */
+    private Sync sync(Collection<Integer> filmIds) {
+        Set<Integer> touched = new HashSet<>();
+        synchronized (this) {
+            touched.addAll(pending.keySet());
+            trackers.add(touched);
+        }
+        Map<Integer, Snapshot> actual;
+        try {
+            actual = loadSnapshots(filmIds);
+        } catch (RuntimeException e) {
+            untrack(touched);
+            throw e;
+        }
+        long drift = 0;
+        int driftedFilms = 0;
+        List<Integer> skipped = new ArrayList<>();
+        synchronized (this) {
+            untrack(touched);
+            Set<Integer> ids = new HashSet<>(actual.keySet());
+            if (filmIds == null) {
+                ids.addAll(entries.keySet());
+            } else {
+                ids.addAll(filmIds);
+            }
+            for (Integer filmId : ids) {
+                if (touched.contains(filmId)) {
+                    skipped.add(filmId);
+                    continue;
+                }
+                Entry entry = entries.get(filmId);
+                Snapshot film = actual.get(filmId);
+                int expected = film == null ? 0 : film.likes();
+                int current = entry == null ? 0 : entry.likes();
+                if (expected != current || (entry != null) != (film != null)
+                        || (film != null && !film.classification().equals(classifications.get(filmId)))) {
+                    drift += Math.abs(expected - current);
+                    driftedFilms++;
+                    remove(filmId);
+                    if (film != null) {
+                        classifications.put(filmId, film.classification());
+                        put(filmId, expected);
+                    } else {
+                        classifications.remove(filmId);
+                    }
+                }
+            }
+        }
+        return new Sync(drift, driftedFilms, skipped);
+    }
+
+    private synchronized void begin(int filmId) {
+        pending.merge(filmId, 1, Integer::sum);
+        touch(filmId);
+    }
+
+    private synchronized void end(int filmId) {
+        pending.computeIfPresent(filmId, (key, writes) -> writes == 1 ? null : writes - 1);
+    }
+
+    private void touch(int filmId) {
+        for (Set<Integer> touched : trackers) {
+            touched.add(filmId);
+        }
+    }
+
+    private synchronized void untrack(Set<Integer> touched) {
+        trackers.removeIf(tracker -> tracker == touched);
+    }
+
+    private synchronized void apply(int filmId, int delta) {
+        Entry entry = remove(filmId);
+        int likes = entry == null ? 0 : entry.likes();
+        put(filmId, Math.max(0, likes + delta));
+    }
+
+    private void classify(int filmId, Classification classification) {
+        if (entries.containsKey(filmId) && classification.equals(classifications.get(filmId))) {
+            return;
+        }
+        touch(filmId);
+        Entry entry = remove(filmId);
+        classifications.put(filmId, classification);
+        put(filmId, entry == null ? 0 : entry.likes());
+    }
+
+    private void put(int filmId, int likes) {
+        Entry entry = new Entry(filmId, likes);
+        entries.put(filmId, entry);
+        ranking.add(entry);
+        if (filmId >= likesById.length) {
+            likesById = Arrays.copyOf(likesById, Math.max(filmId + 1, likesById.length * 2));
+        }
+        likesById[filmId] = likes;
+        Classification classification = classifications.get(filmId);
+        if (classification == null) {
+            return;
+        }
+        for (int genreId : classification.genreIds()) {
+            byGenre.computeIfAbsent(genreId, key -> new TreeSet<>(ORDER)).add(entry);
+        }
+        byMpa.computeIfAbsent(classification.mpaId(), key -> new TreeSet<>(ORDER)).add(entry);
+        byYear.computeIfAbsent(classification.year(), key -> new TreeSet<>(ORDER)).add(entry);
+    }
+
+    private Entry remove(int filmId) {
+        Entry entry = entries.remove(filmId);
+        if (entry != null) {
+            ranking.remove(entry);
+            likesById[filmId] = 0;
+            Classification classification = classifications.get(filmId);
+            if (classification != null) {
+                for (int genreId : classification.genreIds()) {
+                    byGenre.get(genreId).remove(entry);
+                }
+                byMpa.get(classification.mpaId()).remove(entry);
+                byYear.get(classification.year()).remove(entry);
+            }
+        }
+        return entry;
+    }
+
+    /**
+     * Более короткий из {@code current} и рейтинга по условию {@code key}; незаданное условие не учитывается.
+     */
+    private static NavigableSet<Entry> shorter(NavigableSet<Entry> current,
+                                               Map<Integer, NavigableSet<Entry>> partitions, Integer key) {
+        if (key == null) {
+            return current;
+        }
+        NavigableSet<Entry> partition = partitions.getOrDefault(key, Collections.emptyNavigableSet());
+        return current == null || partition.size() < current.size() ? partition : current;
+    }
+
+    /**
+     * Состояние фильмов {@code filmIds} или, если {@code null}, всех фильмов.
+     */
+    private Map<Integer, Snapshot> loadSnapshots(Collection<Integer> filmIds) {
+        String genresFilter = "";
+        String filmsFilter = "";
+        Object[] args = new Object[0];
+        if (filmIds != null) {
+            String in = String.join(",", Collections.nCopies(filmIds.size(), "?"));
+            genresFilter = " WHERE film_id IN (" + in + ")";
+            filmsFilter = "WHERE f.film_id IN (" + in + ") ";
+            args = filmIds.toArray();
+        }
+        Map<Integer, Set<Integer>> genres = new HashMap<>();
+        jdbcTemplate.query(String.format(SELECT_FILM_GENRES, genresFilter), rs -> {
+            genres.computeIfAbsent(rs.getInt("film_id"), key -> new HashSet<>()).add(rs.getInt("genre_id"));
+        }, args);
+        Map<Integer, Snapshot> films = new HashMap<>();
+        jdbcTemplate.query(String.format(SELECT_LIKE_COUNTS, filmsFilter), rs -> {
+            int filmId = rs.getInt("film_id");
+            Classification classification = new Classification(rs.getInt("rating_id"), rs.getInt("release_year"),
+                    Set.copyOf(genres.getOrDefault(filmId, Set.of())));
+            films.put(filmId, new Snapshot(classification, rs.getInt("likes")));
+        }, args);
+        return films;
+    }
+
+    private record Entry(int filmId, int likes) {
+    }
+
+    private record Classification(int mpaId, int year, Set<Integer> genreIds) {
+        static Classification of(Film film) {
+            Set<Integer> genreIds = new HashSet<>();
+            for (Genre genre : film.getGenres()) {
+                genreIds.add(genre.getId());
+            }
+            return new Classification(film.getMpa().getId(), film.getReleaseDate().getYear(), Set.copyOf(genreIds));
+        }
+
+        boolean matches(Integer genreId, Integer mpaId, Integer year) {
+            return (genreId == null || genreIds.contains(genreId)) && (mpaId == null || this.mpaId == mpaId)
+                    && (year == null || this.year == year);
+        }
+    }
+
+    private record Snapshot(Classification classification, int likes) {
+    }
+
+    private record Sync(long drift, int driftedFilms, List<Integer> skipped) {
+    }
+}
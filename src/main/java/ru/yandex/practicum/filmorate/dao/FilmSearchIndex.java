@@ -0,0 +1,445 @@
+package ru.yandex.practicum.filmorate.dao;
+
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Инвертированный индекс по названиям и описаниям фильмов. Слова приводятся к нижнему регистру,
+ * «ё» заменяется на «е»; слова от трёх букв ищутся и по префиксу, что отчасти заменяет разбор
+ * окончаний. Фильм должен содержать все слова запроса; релевантность (idf найденных слов, совпадение
+ * в названии весит вдвое больше) умножается на логарифм числа лайков.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class FilmSearchIndex {
+    private static final int MIN_TOKEN_LENGTH = 2;
+    private static final int MIN_PREFIX_LENGTH = 3;
+    private static final int MAX_PREFIX_EXPANSIONS = 64;
+    private static final float NAME_WEIGHT = 2f;
+    private static final float DESCRIPTION_WEIGHT = 1f;
+    private static final float PREFIX_WEIGHT = 0.5f;
+    private static final float LIKES_WEIGHT = 0.25f;
+    private static final float[] LIKES_BOOST = createLikesBoost();
+    private static final int POPULARITY_SCAN_RATIO = 8;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final FilmPopularityIndex popularityIndex;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<String, Integer> terms = new HashMap<>();
+    private final TreeMap<String, Integer> sortedTerms = new TreeMap<>();
+    private final List<Postings> namePostings = new ArrayList<>();
+    private final List<Postings> descriptionPostings = new ArrayList<>();
+    private final Map<Integer, Document> documents = new HashMap<>();
+
+    @PostConstruct
+    public void load() {
+        lock.writeLock().lock();
+        try {
+            terms.clear();
+            sortedTerms.clear();
+            namePostings.clear();
+            descriptionPostings.clear();
+            documents.clear();
+            jdbcTemplate.query("SELECT film_id, name, description FROM films ORDER BY film_id",
+                    rs -> {
+                        add(rs.getInt("film_id"), rs.getString("name"), rs.getString("description"));
+                    });
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.info("Поисковый индекс построен: {} фильмов, {} слов", documents.size(), terms.size());
+    }
+
+    public void index(int filmId, String name, String description) {
+        lock.writeLock().lock();
+        try {
+            remove(filmId);
+            add(filmId, name, description);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Переиндексирует фильмы, изменённые в обход этого узла.
+     */
+    public void refresh(Collection<Integer> filmIds) {
+        if (filmIds.isEmpty()) {
+            return;
+        }
+        String in = String.join(",", Collections.nCopies(filmIds.size(), "?"));
+        jdbcTemplate.query("SELECT film_id, name, description FROM films WHERE film_id IN (" + in + ")",
+                rs -> {
+                    index(rs.getInt("film_id"), rs.getString("name"), rs.getString("description"));
+                }, filmIds.toArray());
+    }
+
+    public int[] search(String query, boolean byName, boolean byDescription, int limit) {
+        Set<String> tokens = tokenize(query);
+        if (tokens.isEmpty() || !(byName || byDescription)) {
+            return new int[0];
+        }
+        Matches found = null;
+        lock.readLock().lock();
+        try {
+            List<Matches> perToken = new ArrayList<>(tokens.size());
+            for (String token : tokens) {
+                Matches matches = match(token, byName, byDescription);
+                if (matches.size == 0) {
+                    return new int[0];
+                }
+                perToken.add(matches);
+            }
+            perToken.sort(Comparator.comparingInt(matches -> matches.size));
+            for (Matches matches : perToken) {
+                found = found == null ? matches : found.intersect(matches);
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return rank(found, limit);
+    }
+
+    static Set<String> tokenize(String text) {
+        Set<String> tokens = new LinkedHashSet<>();
+        if (text == null) {
+            return tokens;
+        }
+        StringBuilder token = new StringBuilder();
+        for (int i = 0; i <= text.length(); i++) {
+            char c = i < text.length() ? Character.toLowerCase(text.charAt(i)) : ' ';
+            if (Character.isLetterOrDigit(c)) {
+                token.append(c == 'ё' ? 'е' : c);
+            } else if (!token.isEmpty()) {
+                if (token.length() >= MIN_TOKEN_LENGTH) {
+                    tokens.add(token.toString());
+                }
+                token.setLength(0);
+            }
+        }
+        return tokens;
+    }
+
+    private void add(int filmId, String name, String description) {
+        int[] nameTerms = termIds(name);
+        int[] descriptionTerms = termIds(description);
+        for (int termId : nameTerms) {
+            namePostings.get(termId).add(filmId);
+        }
+        for (int termId : descriptionTerms) {
+            descriptionPostings.get(termId).add(filmId);
+        }
+        documents.put(filmId, new Document(nameTerms, descriptionTerms));
+    }
+
+    private void remove(int filmId) {
+        Document document = documents.remove(filmId);
+        if (document == null) {
+            return;
+        }
+        for (int termId : document.nameTerms()) {
+            namePostings.get(termId).remove(filmId);
+        }
+        for (int termId : document.descriptionTerms()) {
+            descriptionPostings.get(termId).remove(filmId);
+        }
+    }
+
+    private int[] termIds(String text) {
+        return tokenize(text).stream()
+                .mapToInt(token -> terms.computeIfAbsent(token, key -> {
+                    namePostings.add(new Postings());
+                    descriptionPostings.add(new Postings());
+                    sortedTerms.put(key, namePostings.size() - 1);
+                    return namePostings.size() - 1;
+                }))
+                .toArray();
+    }
+
+    private Matches match(String token, boolean byName, boolean byDescription) {
+        List<Postings> lists = new ArrayList<>();
+        List<Float> weights = new ArrayList<>();
+        Integer exact = terms.get(token);
+        if (exact != null) {
+            addTerm(exact, 1f, byName, byDescription, lists, weights);
+        }
+        if (token.length() >= MIN_PREFIX_LENGTH) {
+            int expansions = 0;
+            for (int termId : sortedTerms.subMap(token, false, token + Character.MAX_VALUE, false).values()) {
+                if (expansions++ == MAX_PREFIX_EXPANSIONS) {
+                    break;
+                }
+                addTerm(termId, PREFIX_WEIGHT, byName, byDescription, lists, weights);
+            }
+        }
+        return Matches.union(lists, weights);
+    }
+
+    private void addTerm(int termId, float weight, boolean byName, boolean byDescription,
+                         List<Postings> lists, List<Float> weights) {
+        if (byName && namePostings.get(termId).size > 0) {
+            lists.add(namePostings.get(termId));
+            weights.add(weight * NAME_WEIGHT * idf(namePostings.get(termId)));
+        }
+        if (byDescription && descriptionPostings.get(termId).size > 0) {
+            lists.add(descriptionPostings.get(termId));
+            weights.add(weight * DESCRIPTION_WEIGHT * idf(descriptionPostings.get(termId)));
+        }
+    }
+
+    private float idf(Postings postings) {
+        return (float) Math.log(1 + (double) documents.size() / postings.size);
+    }
+
+    private int[] rank(Matches found, int limit) {
+        PriorityQueue<Long> top = new PriorityQueue<>(limit + 1);
+        if (found.size > documents.size() / POPULARITY_SCAN_RATIO) {
+            rankByPopularity(found, limit, top);
+        } else {
+            rankByRelevance(found, limit, top);
+        }
+        int[] ids = new int[top.size()];
+        for (int i = ids.length - 1; i >= 0; i--) {
+            ids[i] = Integer.MAX_VALUE - (int) (long) top.poll();
+        }
+        return ids;
+    }
+
+    /**
+     * Для запросов, под которые подходит большая часть фильмов: фильмы перебираются по убыванию лайков,
+     * и перебор останавливается, когда даже максимальная релевантность с текущим числом лайков
+     * не попадает в top.
+     */
+    private void rankByPopularity(Matches found, int limit, PriorityQueue<Long> top) {
+        float maxScore = 0;
+        for (int i = 0; i < found.size; i++) {
+            maxScore = Math.max(maxScore, found.scores[i]);
+        }
+        float bestPossible = maxScore;
+        popularityIndex.forEachByLikes((filmId, likes) -> {
+            if (top.size() == limit && bestPossible * likesBoost(likes) <= score(top.peek())) {
+                return false;
+            }
+            int position = Arrays.binarySearch(found.ids, 0, found.size, filmId);
+            if (position >= 0) {
+                offer(top, limit, found.scores[position] * likesBoost(likes), filmId);
+            }
+            return true;
+        });
+    }
+
+    private void rankByRelevance(Matches found, int limit, PriorityQueue<Long> top) {
+        int[] likes = popularityIndex.findLikes(found.ids, found.size);
+        for (int i = 0; i < found.size; i++) {
+            offer(top, limit, found.scores[i] * likesBoost(likes[i]), found.ids[i]);
+        }
+    }
+
+    private static void offer(PriorityQueue<Long> top, int limit, float score, int filmId) {
+        long rank = ((long) Float.floatToIntBits(score) << 32) | (Integer.MAX_VALUE - filmId);
+        if (top.size() < limit) {
+            top.add(rank);
+        } else if (rank > top.peek()) {
+            top.poll();
+            top.add(rank);
+        }
+    }
+
+    private static float score(long rank) {
+        return Float.intBitsToFloat((int) (rank >>> 32));
+    }
+
+    private static float likesBoost(int likes) {
+        return likes < LIKES_BOOST.length ? LIKES_BOOST[likes] : 1 + LIKES_WEIGHT * (float) Math.log1p(likes);
+    }
+
+    private static float[] createLikesBoost() {
+        float[] boost = new float[4096];
+        for (int likes = 0; likes < boost.length; likes++) {
+            boost[likes] = 1 + LIKES_WEIGHT * (float) Math.log1p(likes);
+        }
+        return boost;
+    }
+
+    private record Document(int[] nameTerms, int[] descriptionTerms) {
+    }
+
+    /**
+     * Отсортированный список id фильмов, содержащих слово.
+     */
+    private static final class Postings {
+        private int[] ids = new int[2];
+        private int size;
+
+        void add(int id) {
+            if (size > 0 && ids[size - 1] >= id) {
+                int position = Arrays.binarySearch(ids, 0, size, id);
+                if (position >= 0) {
+                    return;
+                }
+                insert(-position - 1, id);
+                return;
+            }
+            insert(size, id);
+        }
+
+        void remove(int id) {
+            int position = Arrays.binarySearch(ids, 0, size, id);
+            if (position >= 0) {
+                System.arraycopy(ids, position + 1, ids, position, size - position - 1);
+                size--;
+            }
+        }
+
+        private void insert(int position, int id) {
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+            }
+            System.arraycopy(ids, position, ids, position + 1, size - position);
+            ids[position] = id;
+            size++;
+        }
+    }
+
+    /**
+     * Найденные фильмы по возрастанию id с накопленной релевантностью.
+     */
+    private static final class Matches {
+        private static final int DENSE_UNION_RATIO = 16;
+
+        private final int[] ids;
+        private final float[] scores;
+        private final int size;
+
+        private Matches(int[] ids, float[] scores, int size) {
+            this.ids = ids;
+            this.scores = scores;
+            this.size = size;
+        }
+
+        /**
+         * Объединение списков; для фильма, найденного по нескольким словам, берётся лучший вес.
+         * Длинные списки сливаются через плотный массив по id, короткие — сортировкой.
+         */
+        static Matches union(List<Postings> lists, List<Float> weights) {
+            if (lists.size() == 1) {
+                Postings postings = lists.get(0);
+                float[] scores = new float[postings.size];
+                Arrays.fill(scores, weights.get(0));
+                return new Matches(Arrays.copyOf(postings.ids, postings.size), scores, postings.size);
+            }
+            int total = 0;
+            int maxId = 0;
+            for (Postings postings : lists) {
+                total += postings.size;
+                if (postings.size > 0) {
+                    maxId = Math.max(maxId, postings.ids[postings.size - 1]);
+                }
+            }
+            return total > maxId / DENSE_UNION_RATIO
+                    ? denseUnion(lists, weights, maxId)
+                    : sortedUnion(lists, weights, total);
+        }
+
+        private static Matches denseUnion(List<Postings> lists, List<Float> weights, int maxId) {
+            float[] dense = new float[maxId + 1];
+            int size = 0;
+            for (int list = 0; list < lists.size(); list++) {
+                Postings postings = lists.get(list);
+                float weight = weights.get(list);
+                for (int i = 0; i < postings.size; i++) {
+                    int id = postings.ids[i];
+                    if (dense[id] == 0) {
+                        size++;
+                    }
+                    dense[id] = Math.max(dense[id], weight);
+                }
+            }
+            int[] ids = new int[size];
+            float[] scores = new float[size];
+            int position = 0;
+            for (int id = 0; id < dense.length; id++) {
+                if (dense[id] > 0) {
+                    ids[position] = id;
+                    scores[position++] = dense[id];
+                }
+            }
+            return new Matches(ids, scores, size);
+        }
+
+        private static Matches sortedUnion(List<Postings> lists, List<Float> weights, int total) {
+            long[] packed = new long[total];
+            int position = 0;
+            for (int list = 0; list < lists.size(); list++) {
+                Postings postings = lists.get(list);
+                long weightBits = Float.floatToIntBits(weights.get(list));
+                for (int i = 0; i < postings.size; i++) {
+                    packed[position++] = ((long) postings.ids[i] << 32) | weightBits;
+                }
+            }
+            Arrays.sort(packed);
+            int[] ids = new int[total];
+            float[] scores = new float[total];
+            int size = 0;
+            for (long entry : packed) {
+                int id = (int) (entry >>> 32);
+                float weight = Float.intBitsToFloat((int) entry);
+                if (size > 0 && ids[size - 1] == id) {
+                    scores[size - 1] = Math.max(scores[size - 1], weight);
+                } else {
+                    ids[size] = id;
+                    scores[size++] = weight;
+                }
+            }
+            return new Matches(ids, scores, size);
+        }
+
+        Matches intersect(Matches other) {
+            int[] commonIds = new int[Math.min(size, other.size)];
+            float[] commonScores = new float[commonIds.length];
+            int common = 0;
+            int j = 0;
+            for (int i = 0; i < size && j < other.size; i++) {
+                j = gallop(other.ids, j, other.size, ids[i]);
+                if (j < other.size && other.ids[j] == ids[i]) {
+                    commonIds[common] = ids[i];
+                    commonScores[common++] = scores[i] + other.scores[j];
+                }
+            }
+            return new Matches(commonIds, commonScores, common);
+        }
+
+        private static int gallop(int[] ids, int from, int to, int id) {
+            int step = 1;
+            int low = from;
+            int high = from;
+            while (high < to && ids[high] < id) {
+                low = high + 1;
+                high += step;
+                step <<= 1;
+            }
+            int position = Arrays.binarySearch(ids, low, Math.min(high + 1, to), id);
+            return position >= 0 ? position : -position - 1;
+        }
+    }
+}
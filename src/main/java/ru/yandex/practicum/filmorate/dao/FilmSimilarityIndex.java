@@ -0,0 +1,133 @@
+package ru.yandex.practicum.filmorate.dao;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Item-to-item коллаборативная фильтрация по таблице likes: для каждого фильма в фоне считаются
+ * K самых похожих фильмов (косинусная мера по множествам лайкнувших пользователей).
+ * Рекомендации пользователю собираются при запросе слиянием списков соседей его фильмов.
+ */
+@Slf4j
+@Component
+public class FilmSimilarityIndex {
+    private static final int[] EMPTY = new int[0];
+    private static final int WEIGHT_SCALE = 10_000;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final int neighbours;
+    private final ForkJoinPool pool;
+    private final Timer rebuildTimer;
+    private final Timer requestTimer;
+
+    private volatile Map<Integer, Neighbours> similar = Map.of();
+
+    public FilmSimilarityIndex(JdbcTemplate jdbcTemplate, MeterRegistry meterRegistry,
+                               @Value("${filmorate.recommendations.neighbours:20}") int neighbours,
+                               @Value("${filmorate.recommendations.parallelism:0}") int parallelism) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.neighbours = neighbours;
+        this.pool = new ForkJoinPool(parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors());
+        this.rebuildTimer = Timer.builder("filmorate.recommendations.rebuild")
+                .description("Полный пересчёт похожих фильмов")
+                .register(meterRegistry);
+        this.requestTimer = Timer.builder("filmorate.recommendations.request")
+                .description("Сборка рекомендаций для пользователя")
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
+    }
+
+    @Scheduled(initialDelay = 0, fixedDelayString = "${filmorate.recommendations.rebuild-interval-ms:600000}")
+    public void rebuild() {
+        rebuildTimer.record(() -> {
+            Map<Integer, int[]> filmsByUser = jdbcTemplate.query("SELECT user_id AS from_id, film_id AS to_id " +
+                    "FROM likes ORDER BY user_id, film_id", new AdjacencyExtractor());
+            Map<Integer, int[]> usersByFilm = jdbcTemplate.query("SELECT film_id AS from_id, user_id AS to_id " +
+                    "FROM likes ORDER BY film_id, user_id", new AdjacencyExtractor());
+            Map<Integer, Neighbours> rebuilt = new ConcurrentHashMap<>(usersByFilm.size() * 2);
+            try {
+                pool.submit(() -> usersByFilm.keySet().parallelStream().forEach(filmId -> {
+                    Neighbours found = findNeighbours(filmId, filmsByUser, usersByFilm);
+                    if (found.filmIds().length > 0) {
+                        rebuilt.put(filmId, found);
+                    }
+                })).get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (ExecutionException e) {
+                log.warn("Не удалось пересчитать похожие фильмы", e.getCause());
+                return;
+            }
+            similar = rebuilt;
+            log.info("Похожие фильмы пересчитаны: {} фильмов", rebuilt.size());
+        });
+    }
+
+    public int[] recommend(int userId, int limit) {
+        return requestTimer.record(() -> {
+            int[] liked = jdbcTemplate.queryForList("SELECT film_id FROM likes WHERE user_id = ? ORDER BY film_id",
+                    Integer.class, userId).stream().mapToInt(Integer::intValue).toArray();
+            Map<Integer, Neighbours> current = similar;
+            IntCountMap scores = new IntCountMap();
+            for (int filmId : liked) {
+                Neighbours found = current.get(filmId);
+                if (found == null) {
+                    continue;
+                }
+                for (int i = 0; i < found.filmIds().length; i++) {
+                    if (Arrays.binarySearch(liked, found.filmIds()[i]) < 0) {
+                        scores.add(found.filmIds()[i], found.weights()[i]);
+                    }
+                }
+            }
+            return scores.topKeys(limit);
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        pool.shutdownNow();
+    }
+
+    private Neighbours findNeighbours(int filmId, Map<Integer, int[]> filmsByUser, Map<Integer, int[]> usersByFilm) {
+        int[] users = usersByFilm.get(filmId);
+        IntCountMap coLikes = new IntCountMap();
+        for (int userId : users) {
+            for (int otherId : filmsByUser.getOrDefault(userId, EMPTY)) {
+                if (otherId != filmId) {
+                    coLikes.add(otherId, 1);
+                }
+            }
+        }
+        if (coLikes.size() == 0) {
+            return new Neighbours(EMPTY, EMPTY);
+        }
+        IntCountMap weights = new IntCountMap(coLikes.size());
+        coLikes.forEach((otherId, count) -> {
+            double cosine = count / Math.sqrt((double) users.length * usersByFilm.get(otherId).length);
+            weights.add(otherId, Math.max(1, (int) Math.round(cosine * WEIGHT_SCALE)));
+        });
+        int[] ids = weights.topKeys(neighbours);
+        int[] topWeights = new int[ids.length];
+        for (int i = 0; i < ids.length; i++) {
+            topWeights[i] = weights.get(ids[i]);
+        }
+        return new Neighbours(ids, topWeights);
+    }
+
+    private record Neighbours(int[] filmIds, int[] weights) {
+    }
+}
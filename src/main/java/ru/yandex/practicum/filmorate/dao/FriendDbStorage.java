@@ -3,49 +3,70 @@ package ru.yandex.practicum.filmorate.dao;
 import lombok.RequiredArgsConstructor;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.support.TransactionTemplate;
 import ru.yandex.practicum.filmorate.model.User;
 import ru.yandex.practicum.filmorate.storage.FriendStorage;
+import ru.yandex.practicum.filmorate.storage.UserStorage;
 
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.Arrays;
 import java.util.List;
 
 @Repository
 @RequiredArgsConstructor
 public class FriendDbStorage implements FriendStorage {
     private final JdbcTemplate jdbcTemplate;
+    private final FriendGraphIndex friendGraph;
+    private final UserStorage userStorage;
+    private final TransactionTemplate transactionTemplate;
+    private final ChangeLog changeLog;
 
     @Override
     public void addFriend(int id, int friendId) {
         String sql = "INSERT INTO friendship(user_id, friend_id) VALUES (?,?)";
-        jdbcTemplate.update(sql, id, friendId);
+        friendGraph.addFriend(id, friendId, () -> write(sql, id, friendId));
     }
 
     @Override
     public void removeFriend(int userId, int friendId) {
         String sql = "DELETE FROM friendship WHERE USER_ID = ? AND FRIEND_ID = ?";
-        jdbcTemplate.update(sql, userId, friendId);
+        friendGraph.removeFriend(userId, friendId, () -> write(sql, userId, friendId));
+    }
+
+    private int write(String sql, int userId, int friendId) {
+        Integer rows = transactionTemplate.execute(status -> {
+            int changed = jdbcTemplate.update(sql, userId, friendId);
+            if (changed > 0) {
+                changeLog.friendshipChanged(userId, friendId);
+            }
+            return changed;
+        });
+        return rows == null ? 0 : rows;
     }
 
     @Override
     public List<User> findAllFriends(int id) {
-        String sql = "SELECT u.user_id, u.email, u.login, u.name, u.birthday " +
-                "FROM friendship AS f " +
-                "INNER JOIN users AS u ON u.user_id = f.friend_id " +
-                "WHERE f.user_id = ? " +
-                "ORDER BY u.user_id";
-        return jdbcTemplate.query(sql, (rs, rowNum) -> makeFriend(rs), id);
+        return userStorage.findUsersByIds(friendGraph.findFriends(id));
+    }
+
+    @Override
+    public List<User> findFriendsAfter(int id, int afterId, int limit) {
+        int[] friends = friendGraph.findFriends(id);
+        int from = Arrays.binarySearch(friends, afterId);
+        from = from >= 0 ? from + 1 : -from - 1;
+        int to = (int) Math.min((long) from + limit, friends.length);
+        return userStorage.findUsersByIds(Arrays.copyOfRange(friends, from, to));
     }
 
     @Override
     public List<User> findCommonFriends(int id, int otherId) {
-        String sql = "SELECT u.user_id, u.email, u.login, u.name, u.birthday " +
-                "FROM friendship AS f " +
-                "INNER JOIN friendship fr ON fr.friend_id = f.friend_id " +
-                "INNER JOIN users u ON u.user_id = fr.friend_id " +
-                "WHERE f.user_id = ? AND fr.user_id = ? " +
-                "AND f.friend_id <> fr.user_id AND fr.friend_id <> f.user_id";
-        return jdbcTemplate.query(sql, (rs, rowNum) -> makeFriend(rs), id, otherId);
+        return userStorage.findUsersByIds(friendGraph.findCommonFriends(id, otherId));
+    }
+
+    @Override
+    public List<User> findSuggestions(int id, int limit) {
+        return userStorage.findUsersByIds(friendGraph.findSuggestions(id, limit));
     }
 
     public User findFriendsByUserId(int id) {
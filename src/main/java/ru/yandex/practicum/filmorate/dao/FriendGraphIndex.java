@@ -0,0 +1,224 @@
+package ru.yandex.practicum.filmorate.dao;
+
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.storage.ContentVersions;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.IntSupplier;
+import java.util.stream.IntStream;
+
+/**
+ * Граф дружбы в памяти: для каждого пользователя — отсортированные массивы id друзей
+ * и тех, у кого он сам в друзьях (нужны для сброса кэша рекомендаций знакомств).
+ * Массивы не изменяются после публикации, поэтому читатели работают без блокировок;
+ * запись в БД и замена массива выполняются под блокировкой пользователя. Блокировки — {@link ReentrantLock},
+ * а не {@code synchronized}: под ними идёт JDBC-запрос, и виртуальный поток не должен закреплять носитель.
+ * Версия списков друзей в {@link ContentVersions} меняется уже после замены массивов, чтобы ответ
+ * с новым ETag не был собран по старому графу.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class FriendGraphIndex {
+    private static final int[] EMPTY = new int[0];
+    private static final int LOCK_STRIPES = 64;
+    private static final int PARALLEL_THRESHOLD = 256;
+    private static final int SUGGESTIONS_CACHE_DEPTH = 50;
+    private static final int SUGGESTIONS_CACHE_SIZE = 10_000;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ContentVersions versions;
+
+    private final Map<Integer, int[]> friends = new ConcurrentHashMap<>();
+    private final Map<Integer, int[]> followers = new ConcurrentHashMap<>();
+    private final Map<Integer, int[]> suggestions = Collections.synchronizedMap(
+            new LinkedHashMap<>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<Integer, int[]> eldest) {
+                    return size() > SUGGESTIONS_CACHE_SIZE;
+                }
+            });
+    private final ReentrantLock[] locks = createLocks();
+    private final AtomicLong version = new AtomicLong();
+
+    @PostConstruct
+    public void load() {
+        Map<Integer, int[]> loadedFriends = jdbcTemplate.query("SELECT user_id AS from_id, friend_id AS to_id " +
+                "FROM friendship ORDER BY user_id, friend_id", new AdjacencyExtractor());
+        Map<Integer, int[]> loadedFollowers = jdbcTemplate.query("SELECT friend_id AS from_id, user_id AS to_id " +
+                "FROM friendship ORDER BY friend_id, user_id", new AdjacencyExtractor());
+        friends.clear();
+        friends.putAll(loadedFriends);
+        followers.clear();
+        followers.putAll(loadedFollowers);
+        version.incrementAndGet();
+        suggestions.clear();
+        log.info("Граф дружбы загружен: {} пользователей с друзьями", loadedFriends.size());
+    }
+
+    public int[] findFriends(int userId) {
+        return friends.getOrDefault(userId, EMPTY);
+    }
+
+    public void addFriend(int userId, int friendId, IntSupplier write) {
+        ReentrantLock lock = lockFor(userId);
+        lock.lock();
+        try {
+            if (write.getAsInt() > 0) {
+                friends.compute(userId, (id, current) -> insert(current == null ? EMPTY : current, friendId));
+                followers.compute(friendId, (id, current) -> insert(current == null ? EMPTY : current, userId));
+                invalidateSuggestions(userId);
+                versions.friendsChanged();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void removeFriend(int userId, int friendId, IntSupplier write) {
+        ReentrantLock lock = lockFor(userId);
+        lock.lock();
+        try {
+            if (write.getAsInt() > 0) {
+                friends.computeIfPresent(userId, (id, current) -> removeOrNull(current, friendId));
+                followers.computeIfPresent(friendId, (id, current) -> removeOrNull(current, userId));
+                invalidateSuggestions(userId);
+                versions.friendsChanged();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Перечитывает из БД, есть ли у {@code userId} друг {@code friendId}, если дружбу изменили в обход этого узла.
+     */
+    public void refresh(int userId, int friendId) {
+        ReentrantLock lock = lockFor(userId);
+        lock.lock();
+        try {
+            Integer rows = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM friendship " +
+                    "WHERE user_id = ? AND friend_id = ?", Integer.class, userId, friendId);
+            if (rows != null && rows > 0) {
+                friends.compute(userId, (id, current) -> insert(current == null ? EMPTY : current, friendId));
+                followers.compute(friendId, (id, current) -> insert(current == null ? EMPTY : current, userId));
+            } else {
+                friends.computeIfPresent(userId, (id, current) -> removeOrNull(current, friendId));
+                followers.computeIfPresent(friendId, (id, current) -> removeOrNull(current, userId));
+            }
+            invalidateSuggestions(userId);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int[] findCommonFriends(int userId, int otherId) {
+        int[] a = findFriends(userId);
+        int[] b = findFriends(otherId);
+        int[] common = new int[Math.min(a.length, b.length)];
+        int size = 0;
+        int i = 0;
+        int j = 0;
+        while (i < a.length && j < b.length) {
+            if (a[i] < b[j]) {
+                i++;
+            } else if (a[i] > b[j]) {
+                j++;
+            } else {
+                if (a[i] != userId && a[i] != otherId) {
+                    common[size++] = a[i];
+                }
+                i++;
+                j++;
+            }
+        }
+        return Arrays.copyOf(common, size);
+    }
+
+    /**
+     * Друзья друзей, ещё не ставшие друзьями, по убыванию числа общих друзей.
+     */
+    public int[] findSuggestions(int userId, int limit) {
+        int[] cached = suggestions.get(userId);
+        if (cached != null && (cached.length >= limit || cached.length < SUGGESTIONS_CACHE_DEPTH)) {
+            return cached.length > limit ? Arrays.copyOf(cached, limit) : cached;
+        }
+        long computedAt = version.get();
+        int[] direct = findFriends(userId);
+        IntStream stream = Arrays.stream(direct);
+        if (direct.length >= PARALLEL_THRESHOLD) {
+            stream = stream.parallel();
+        }
+        IntCountMap mutualCounts = stream.collect(IntCountMap::new, (counts, friendId) -> {
+            for (int candidate : findFriends(friendId)) {
+                if (candidate != userId && Arrays.binarySearch(direct, candidate) < 0) {
+                    counts.add(candidate, 1);
+                }
+            }
+        }, IntCountMap::addAll);
+        int[] ranked = mutualCounts.topKeys(Math.max(limit, SUGGESTIONS_CACHE_DEPTH));
+        if (version.get() == computedAt) {
+            suggestions.put(userId, ranked);
+        }
+        return ranked.length > limit ? Arrays.copyOf(ranked, limit) : ranked;
+    }
+
+    private void invalidateSuggestions(int userId) {
+        version.incrementAndGet();
+        suggestions.remove(userId);
+        for (int follower : followers.getOrDefault(userId, EMPTY)) {
+            suggestions.remove(follower);
+        }
+    }
+
+    private ReentrantLock lockFor(int userId) {
+        return locks[Math.floorMod(userId, LOCK_STRIPES)];
+    }
+
+    private static int[] insert(int[] ids, int id) {
+        int position = Arrays.binarySearch(ids, id);
+        if (position >= 0) {
+            return ids;
+        }
+        position = -position - 1;
+        int[] updated = new int[ids.length + 1];
+        System.arraycopy(ids, 0, updated, 0, position);
+        updated[position] = id;
+        System.arraycopy(ids, position, updated, position + 1, ids.length - position);
+        return updated;
+    }
+
+    private static int[] remove(int[] ids, int id) {
+        int position = Arrays.binarySearch(ids, id);
+        if (position < 0) {
+            return ids;
+        }
+        int[] updated = new int[ids.length - 1];
+        System.arraycopy(ids, 0, updated, 0, position);
+        System.arraycopy(ids, position + 1, updated, position, ids.length - position - 1);
+        return updated;
+    }
+
+    private static int[] removeOrNull(int[] ids, int id) {
+        int[] updated = remove(ids, id);
+        return updated.length == 0 ? null : updated;
+    }
+
+    private static ReentrantLock[] createLocks() {
+        ReentrantLock[] locks = new ReentrantLock[LOCK_STRIPES];
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            locks[i] = new ReentrantLock();
+        }
+        return locks;
+    }
+}
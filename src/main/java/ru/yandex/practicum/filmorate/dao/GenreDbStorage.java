@@ -3,6 +3,8 @@ package ru.yandex.practicum.filmorate.dao;
 import lombok.RequiredArgsConstructor;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
 import ru.yandex.practicum.filmorate.model.Film;
 import ru.yandex.practicum.filmorate.model.Genre;
 import ru.yandex.practicum.filmorate.storage.GenreStorage;
@@ -20,25 +22,36 @@ import static java.util.function.UnaryOperator.identity;
 @Repository
 @RequiredArgsConstructor
 public class GenreDbStorage implements GenreStorage {
+    private static final int MAX_FILMS_PER_QUERY = 1000;
+
     private final JdbcTemplate jdbcTemplate;
+    private final ReferenceDataRegistry referenceData;
 
     @Override
     public List<Genre> findAllGenres() {
-        String sql = "SELECT * FROM genres";
-        return jdbcTemplate.query(sql, (rs, rowNum) -> makeGenre(rs));
+        return referenceData.findAllGenres();
     }
 
     @Override
     public Optional<Genre> findGenreById(int id) {
-        String sql = "SELECT * FROM genres WHERE genre_id = ?";
-        return jdbcTemplate.query(sql, (rs, rowNum) -> makeGenre(rs), id).stream().findFirst();
+        return referenceData.findGenreById(id);
     }
 
     @Override
+    @Transactional(readOnly = true, propagation = Propagation.SUPPORTS)
     public void findAllGenresByFilm(List<Film> films) {
+        if (films.isEmpty()) {
+            return;
+        }
+        for (int from = 0; from < films.size(); from += MAX_FILMS_PER_QUERY) {
+            findGenresByFilmChunk(films.subList(from, Math.min(from + MAX_FILMS_PER_QUERY, films.size())));
+        }
+    }
+
+    private void findGenresByFilmChunk(List<Film> films) {
         final Map<Integer, Film> filmById = films.stream().collect(Collectors.toMap(Film::getId, identity()));
-        String sql = "SELECT * FROM GENRES g, film_genres fg WHERE fg.genre_id = g.genre_id AND fg.film_id IN (%s)";
-        String inSql = String.join(",", Collections.nCopies(films.size(), "?"));
+        String sql = "SELECT film_id, genre_id FROM film_genres WHERE film_id IN (%s)";
+        String inSql = String.join(",", Collections.nCopies(filmById.size(), "?"));
         jdbcTemplate.query(String.format(sql, inSql),
                 filmById.keySet().toArray(),
                 (rs, rowNum) -> filmById.get(rs.getInt("film_id")).getGenres().add(makeGenre(rs)));
@@ -46,7 +59,6 @@ public class GenreDbStorage implements GenreStorage {
 
     private Genre makeGenre(ResultSet rs) throws SQLException {
         int id = rs.getInt("genre_id");
-        String name = rs.getString("name");
-        return new Genre(id, name);
+        return referenceData.findGenreById(id).orElseGet(() -> new Genre(id, null));
     }
 }
\ No newline at end of file
@@ -0,0 +1,92 @@
+package ru.yandex.practicum.filmorate.dao;
+
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.BitSet;
+
+/**
+ * Множества существующих id пользователей и фильмов в виде битовых масок по диапазону identity:
+ * миллион id занимает 125 КБ. Загружаются при старте и пополняются при создании через хранилища,
+ * а строки, созданные другими узлами, — через {@link ChangeLogPoller}. Проверка не обращается к БД:
+ * бит означает, что строка точно есть (удалений в схеме нет), а без бита id считается несуществующим,
+ * так что перебор чужих id не нагружает БД. Строки, записанные в обход хранилищ и журнала изменений
+ * (генератором данных), видны после перезапуска или {@link #load()}.
+ * Созданный в транзакции id попадает в маску только после коммита: откаченная строка бит не оставит.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class IdExistenceFilter {
+    private final JdbcTemplate jdbcTemplate;
+
+    private final BitSet users = new BitSet();
+    private final BitSet films = new BitSet();
+
+    @PostConstruct
+    public void load() {
+        int userCount = load(users, "SELECT user_id FROM users");
+        int filmCount = load(films, "SELECT film_id FROM films");
+        log.info("Фильтр существующих id загружен: {} пользователей, {} фильмов", userCount, filmCount);
+    }
+
+    public void addUser(int id) {
+        afterCommit(() -> add(users, id));
+    }
+
+    public void addFilm(int id) {
+        afterCommit(() -> add(films, id));
+    }
+
+    public boolean userExists(int id) {
+        return exists(users, id);
+    }
+
+    public boolean filmExists(int id) {
+        return exists(films, id);
+    }
+
+    private int load(BitSet ids, String sql) {
+        BitSet loaded = new BitSet();
+        jdbcTemplate.query(sql, rs -> {
+            loaded.set(rs.getInt(1));
+        });
+        synchronized (ids) {
+            ids.or(loaded);
+        }
+        return loaded.cardinality();
+    }
+
+    private static boolean exists(BitSet ids, int id) {
+        if (id < 0) {
+            return false;
+        }
+        synchronized (ids) {
+            return ids.get(id);
+        }
+    }
+
+    private static void add(BitSet ids, int id) {
+        synchronized (ids) {
+            ids.set(id);
+        }
+    }
+
+    private static void afterCommit(Runnable add) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    add.run();
+                }
+            });
+        } else {
+            add.run();
+        }
+    }
+}
@@ -0,0 +1,153 @@
+package ru.yandex.practicum.filmorate.dao;
+
+import java.util.Arrays;
+
+/**
+ * Счётчики по положительным int-ключам (id сущностей) с открытой адресацией, без упаковки в Integer.
+ */
+final class IntCountMap {
+    private static final int FREE = 0;
+
+    private int[] keys;
+    private int[] counts;
+    private int size;
+
+    IntCountMap() {
+        this(16);
+    }
+
+    IntCountMap(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(4, expectedSize * 2 - 1)) << 1;
+        keys = new int[capacity];
+        counts = new int[capacity];
+    }
+
+    void add(int key, int delta) {
+        int slot = slot(keys, key);
+        counts[slot] += delta;
+        if (keys[slot] == FREE) {
+            keys[slot] = key;
+            if (++size * 2 > keys.length) {
+                grow();
+            }
+        }
+    }
+
+    void addAll(IntCountMap other) {
+        for (int i = 0; i < other.keys.length; i++) {
+            if (other.keys[i] != FREE) {
+                add(other.keys[i], other.counts[i]);
+            }
+        }
+    }
+
+    int get(int key) {
+        int slot = slot(keys, key);
+        return keys[slot] == FREE ? 0 : counts[slot];
+    }
+
+    int size() {
+        return size;
+    }
+
+    void forEach(EntryConsumer consumer) {
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != FREE) {
+                consumer.accept(keys[i], counts[i]);
+            }
+        }
+    }
+
+    /**
+     * До k ключей с наибольшими счётчиками; при равенстве счётчиков меньший ключ идёт раньше.
+     * При {@code k <= 0} — пустой массив.
+     */
+    int[] topKeys(int k) {
+        long[] heap = new long[Math.max(0, Math.min(k, size))];
+        int heapSize = 0;
+        for (int i = 0; i < keys.length && heap.length > 0; i++) {
+            if (keys[i] == FREE) {
+                continue;
+            }
+            long rank = ((long) counts[i] << 32) | (Integer.MAX_VALUE - keys[i]);
+            if (heapSize < heap.length) {
+                heap[heapSize++] = rank;
+                siftUp(heap, heapSize - 1);
+            } else if (rank > heap[0]) {
+                heap[0] = rank;
+                siftDown(heap, heapSize);
+            }
+        }
+        Arrays.sort(heap, 0, heapSize);
+        int[] top = new int[heapSize];
+        for (int i = 0; i < heapSize; i++) {
+            top[i] = Integer.MAX_VALUE - (int) heap[heapSize - 1 - i];
+        }
+        return top;
+    }
+
+    @FunctionalInterface
+    interface EntryConsumer {
+        void accept(int key, int count);
+    }
+
+    private void grow() {
+        int[] oldKeys = keys;
+        int[] oldCounts = counts;
+        keys = new int[oldKeys.length * 2];
+        counts = new int[oldKeys.length * 2];
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != FREE) {
+                int slot = slot(keys, oldKeys[i]);
+                keys[slot] = oldKeys[i];
+                counts[slot] = oldCounts[i];
+            }
+        }
+    }
+
+    private static int slot(int[] keys, int key) {
+        int mask = keys.length - 1;
+        int slot = (key * 0x9E3779B9) >>> (Integer.numberOfLeadingZeros(mask) & 31);
+        while (keys[slot] != FREE && keys[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private static void siftUp(long[] heap, int index) {
+        while (index > 0) {
+            int parent = (index - 1) >>> 1;
+            if (heap[parent] <= heap[index]) {
+                return;
+            }
+            swap(heap, parent, index);
+            index = parent;
+        }
+    }
+
+    private static void siftDown(long[] heap, int heapSize) {
+        int index = 0;
+        while (true) {
+            int smallest = index;
+            int left = 2 * index + 1;
+            int right = left + 1;
+            if (left < heapSize && heap[left] < heap[smallest]) {
+                smallest = left;
+            }
+            if (right < heapSize && heap[right] < heap[smallest]) {
+                smallest = right;
+            }
+            if (smallest == index) {
+                return;
+            }
+            swap(heap, smallest, index);
+            index = smallest;
+        }
+    }
+
+    private static void swap(long[] heap, int i, int j) {
+        long tmp = heap[i];
+        heap[i] = heap[j];
+        heap[j] = tmp;
+    }
+}
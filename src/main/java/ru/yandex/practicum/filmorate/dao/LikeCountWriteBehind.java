@@ -0,0 +1,121 @@
+package ru.yandex.practicum.filmorate.dao;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.yandex.practicum.filmorate.storage.ContentVersions;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Копит фильмы, лайки которых изменились, и пересчитывает их films.like_count по таблице likes пачкой:
+ * по таймеру или как только накопилось flush-size фильмов с несброшенными изменениями. Счётчик записывается
+ * целиком, а не прибавлением разницы, поэтому сброс можно повторять, а узлы над общей БД не накладывают
+ * свои изменения на пересчёт при старте другого узла. Фильм, лайки которого на этом узле в сумме не изменились,
+ * не пересчитывается.
+ */
+@Slf4j
+@Component
+public class LikeCountWriteBehind {
+    private static final String UPDATE_LIKE_COUNT = "UPDATE films " +
+            "SET like_count = (SELECT COUNT(*) FROM likes WHERE film_id = ?) WHERE film_id = ?";
+
+    private static final String RESYNC_LIKE_COUNTS = "UPDATE films AS f " +
+            "SET like_count = (SELECT COUNT(*) FROM likes AS l WHERE l.film_id = f.film_id) " +
+            "WHERE like_count <> (SELECT COUNT(*) FROM likes AS l WHERE l.film_id = f.film_id)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ContentVersions versions;
+    private final TransactionTemplate transactionTemplate;
+    private final ChangeLog changeLog;
+    private final int flushSize;
+    private final Map<Integer, Integer> pending = new ConcurrentHashMap<>();
+    private final ReentrantLock flushLock = new ReentrantLock();
+
+    public LikeCountWriteBehind(JdbcTemplate jdbcTemplate, ContentVersions versions,
+                                TransactionTemplate transactionTemplate, ChangeLog changeLog,
+                                @Value("${filmorate.likes.flush-size:500}") int flushSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.versions = versions;
+        this.transactionTemplate = transactionTemplate;
+        this.changeLog = changeLog;
+        this.flushSize = flushSize;
+    }
+
+    @PostConstruct
+    public void resync() {
+        Integer fixed = transactionTemplate.execute(status -> {
+            int rows = jdbcTemplate.update(RESYNC_LIKE_COUNTS);
+            if (rows > 0) {
+                changeLog.allLikeCountsChanged();
+            }
+            return rows;
+        });
+        if (fixed != null && fixed > 0) {
+            log.warn("Счётчик лайков исправлен у {} фильмов", fixed);
+            versions.allFilmsChanged();
+        }
+    }
+
+    public void add(int filmId, int delta) {
+        if (delta == 0) {
+            return;
+        }
+        pending.merge(filmId, delta, (current, added) -> current + added == 0 ? null : current + added);
+        if (pending.size() >= flushSize && flushLock.tryLock()) {
+            try {
+                flushPending();
+            } finally {
+                flushLock.unlock();
+            }
+        }
+    }
+
+    @PreDestroy
+    @Scheduled(fixedDelayString = "${filmorate.likes.flush-interval-ms:1000}")
+    public void flush() {
+        flushLock.lock();
+        try {
+            flushPending();
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    private void flushPending() {
+        List<int[]> deltas = new ArrayList<>(pending.size());
+        for (Integer filmId : pending.keySet()) {
+            Integer delta = pending.remove(filmId);
+            if (delta != null) {
+                deltas.add(new int[]{filmId, delta});
+            }
+        }
+        if (deltas.isEmpty()) {
+            return;
+        }
+        deltas.sort((a, b) -> Integer.compare(a[0], b[0]));
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                jdbcTemplate.batchUpdate(UPDATE_LIKE_COUNT, deltas, deltas.size(), (ps, delta) -> {
+                    ps.setInt(1, delta[0]);
+                    ps.setInt(2, delta[0]);
+                });
+                changeLog.filmsChanged(ChangeLog.Kind.LIKE_COUNT, deltas.stream().map(delta -> delta[0]).toList());
+            });
+            deltas.forEach(delta -> versions.filmChanged(delta[0]));
+        } catch (DataAccessException e) {
+            deltas.forEach(delta -> pending.merge(delta[0], delta[1], Integer::sum));
+            log.warn("Не удалось сохранить счётчики лайков, повтор при следующем сбросе", e);
+        }
+    }
+}
@@ -3,22 +3,69 @@ package ru.yandex.practicum.filmorate.dao;
 import lombok.RequiredArgsConstructor;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.yandex.practicum.filmorate.storage.ContentVersions;
 import ru.yandex.practicum.filmorate.storage.LikeStorage;
 
+import java.util.List;
+
 @Repository
 @RequiredArgsConstructor
 public class LikeDbStorage implements LikeStorage {
     private final JdbcTemplate jdbcTemplate;
+    private final FilmPopularityIndex popularityIndex;
+    private final LikeCountWriteBehind likeCounts;
+    private final FilmSimilarityIndex similarityIndex;
+    private final ContentVersions versions;
+    private final TransactionTemplate transactionTemplate;
+    private final ChangeLog changeLog;
 
     @Override
     public void addLike(int id, int userId) {
         String sql = "INSERT INTO likes (film_id, user_id) VALUES (?, ?)";
-        jdbcTemplate.update(sql, id, userId);
+        int rows = popularityIndex.addLike(id, () -> write(sql, id, userId));
+        likeCounts.add(id, rows);
+        if (rows > 0) {
+            versions.likesChanged();
+        }
     }
 
     @Override
     public void removeLike(int id, int userId) {
         String sql = "DELETE FROM likes WHERE film_id = ? AND user_id = ?";
-        jdbcTemplate.update(sql, id, userId);
+        int rows = popularityIndex.removeLike(id, () -> write(sql, id, userId));
+        likeCounts.add(id, -rows);
+        if (rows > 0) {
+            versions.likesChanged();
+        }
+    }
+
+    private int write(String sql, int id, int userId) {
+        Integer rows = transactionTemplate.execute(status -> {
+            int changed = jdbcTemplate.update(sql, id, userId);
+            if (changed > 0) {
+                changeLog.likeChanged(id, userId);
+            }
+            return changed;
+        });
+        return rows == null ? 0 : rows;
+    }
+
+    @Override
+    public List<Integer> findPopularFilmIds(int count) {
+        return popularityIndex.findTop(count);
+    }
+
+    @Override
+    public List<Integer> findPopularFilmIds(int count, Integer genreId, Integer mpaId, Integer year) {
+        return popularityIndex.findTop(count, genreId, mpaId, year);
+    }
+
+    @Override
+    @Transactional(readOnly = true, propagation = Propagation.SUPPORTS)
+    public int[] findRecommendedFilmIds(int userId, int count) {
+        return similarityIndex.recommend(userId, count);
     }
 }
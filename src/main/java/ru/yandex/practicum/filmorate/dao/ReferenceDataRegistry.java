@@ -0,0 +1,83 @@
+package ru.yandex.practicum.filmorate.dao;
+
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.Mpa;
+import ru.yandex.practicum.filmorate.storage.ContentVersions;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.function.ToIntFunction;
+
+/**
+ * Справочники рейтингов MPA и жанров, загруженные в память в виде неизменяемых таблиц с доступом по id.
+ * Загружаются при старте, после миграции R__reference_data.sql, и заново по {@link #reload()}: его вызывает
+ * {@code POST /actuator/referencedata} после правки строк в обход приложения, а на остальных узлах —
+ * {@link ChangeLogPoller} по записи журнала изменений.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class ReferenceDataRegistry {
+    private final JdbcTemplate jdbcTemplate;
+    private final ContentVersions versions;
+
+    private volatile Tables tables = new Tables(Table.of(List.of(), Mpa::getId), Table.of(List.of(), Genre::getId));
+
+    /**
+     * Перечитывает оба справочника и подменяет их разом, после чего меняет версию справочников:
+     * читатель видит либо прежние таблицы, либо новые, а новый тег — только вместе с новыми.
+     */
+    @PostConstruct
+    public synchronized void reload() {
+        List<Mpa> mpaRows = jdbcTemplate.query("SELECT rating_id, name FROM mpa_rating ORDER BY rating_id",
+                (rs, rowNum) -> new Mpa(rs.getInt("rating_id"), rs.getString("name")));
+        List<Genre> genreRows = jdbcTemplate.query("SELECT genre_id, name FROM genres ORDER BY genre_id",
+                (rs, rowNum) -> new Genre(rs.getInt("genre_id"), rs.getString("name")));
+        tables = new Tables(Table.of(mpaRows, Mpa::getId), Table.of(genreRows, Genre::getId));
+        versions.referenceDataChanged();
+        log.info("Справочники загружены: рейтингов {}, жанров {}", mpaRows.size(), genreRows.size());
+    }
+
+    public List<Mpa> findAllMpa() {
+        return tables.mpa().rows();
+    }
+
+    public Optional<Mpa> findMpaById(int id) {
+        return tables.mpa().find(id);
+    }
+
+    public List<Genre> findAllGenres() {
+        return tables.genres().rows();
+    }
+
+    public Optional<Genre> findGenreById(int id) {
+        return tables.genres().find(id);
+    }
+
+    private record Tables(Table<Mpa> mpa, Table<Genre> genres) {
+    }
+
+    private record Table<T>(List<T> rows, Object[] byId) {
+        static <T> Table<T> of(List<T> rows, ToIntFunction<T> idOf) {
+            int maxId = rows.stream().mapToInt(idOf).max().orElse(-1);
+            Object[] byId = new Object[maxId + 1];
+            for (T row : rows) {
+                byId[idOf.applyAsInt(row)] = row;
+            }
+            return new Table<>(List.copyOf(rows), byId);
+        }
+
+        @SuppressWarnings("unchecked")
+        Optional<T> find(int id) {
+            if (id < 0 || id >= byId.length) {
+                return Optional.empty();
+            }
+            return Optional.ofNullable((T) byId[id]);
+        }
+    }
+}
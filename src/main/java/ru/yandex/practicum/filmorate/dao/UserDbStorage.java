@@ -5,22 +5,36 @@ import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.support.GeneratedKeyHolder;
 import org.springframework.jdbc.support.KeyHolder;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
 import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.ContentVersions;
 import ru.yandex.practicum.filmorate.storage.UserStorage;
 
 import java.sql.Date;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 @Repository
 @RequiredArgsConstructor
 public class UserDbStorage implements UserStorage {
+    private static final int MAX_USERS_PER_QUERY = 1000;
+
     private final JdbcTemplate jdbcTemplate;
+    private final IdExistenceFilter existingIds;
+    private final ChangeLog changeLog;
+    private final ContentVersions versions;
 
     @Override
+    @Transactional
     public User create(User user) {
         String sql = "INSERT INTO users (email, login, name, birthday) VALUES (?, ?, ?, ?)";
         KeyHolder keyHolder = new GeneratedKeyHolder();
@@ -34,28 +48,73 @@ public class UserDbStorage implements UserStorage {
                     return ps;
                 }, keyHolder);
         user.setId(keyHolder.getKey().intValue());
+        changeLog.userChanged(user.getId());
+        existingIds.addUser(user.getId());
+        versions.userChanged(user.getId());
         return user;
     }
 
     @Override
+    @Transactional
     public User update(User user) {
         String sql = "UPDATE users SET email = ?, login = ?, name = ?, birthday = ? WHERE user_id = ?";
-        jdbcTemplate.update(sql, user.getEmail(), user.getLogin(), user.getName(), user.getBirthday(), user.getId());
+        if (jdbcTemplate.update(sql, user.getEmail(), user.getLogin(), user.getName(), user.getBirthday(),
+                user.getId()) > 0) {
+            changeLog.userChanged(user.getId());
+            versions.userChanged(user.getId());
+        }
         return user;
     }
 
     @Override
+    @Transactional(readOnly = true, propagation = Propagation.SUPPORTS)
     public List<User> findAll() {
         String sql = "SELECT user_id, login, name, email, birthday FROM users";
         return jdbcTemplate.query(sql, (rs, rowNum) -> makeUser(rs));
     }
 
     @Override
+    @Transactional(readOnly = true, propagation = Propagation.SUPPORTS)
+    public List<User> findUsersAfter(int afterId, int limit) {
+        String sql = "SELECT user_id, login, name, email, birthday FROM users WHERE user_id > ? ORDER BY user_id LIMIT ?";
+        return jdbcTemplate.query(sql, (rs, rowNum) -> makeUser(rs), afterId, limit);
+    }
+
+    @Override
+    @Transactional(readOnly = true, propagation = Propagation.SUPPORTS)
     public Optional<User> findUserById(int id) {
         String sql = "SELECT * FROM users WHERE user_id = ?";
         return jdbcTemplate.query(sql, (rs, rowNum) -> makeUser(rs), id).stream().findFirst();
     }
 
+    @Override
+    public boolean existsById(int id) {
+        return existingIds.userExists(id);
+    }
+
+    @Override
+    @Transactional(readOnly = true, propagation = Propagation.SUPPORTS)
+    public List<User> findUsersByIds(int[] ids) {
+        Map<Integer, User> userById = new HashMap<>(ids.length * 2);
+        for (int from = 0; from < ids.length; from += MAX_USERS_PER_QUERY) {
+            int[] chunk = Arrays.copyOfRange(ids, from, Math.min(from + MAX_USERS_PER_QUERY, ids.length));
+            String sql = "SELECT user_id, login, name, email, birthday FROM users WHERE user_id IN (%s)";
+            String inSql = String.join(",", Collections.nCopies(chunk.length, "?"));
+            jdbcTemplate.query(String.format(sql, inSql), rs -> {
+                User user = makeUser(rs);
+                userById.put(user.getId(), user);
+            }, Arrays.stream(chunk).boxed().toArray());
+        }
+        List<User> users = new ArrayList<>(userById.size());
+        for (int id : ids) {
+            User user = userById.get(id);
+            if (user != null) {
+                users.add(user);
+            }
+        }
+        return users;
+    }
+
     private User makeUser(ResultSet rs) throws SQLException {
         return User.builder()
                 .id(rs.getInt("user_id"))
@@ -1,8 +1,14 @@
 package ru.yandex.practicum.filmorate.exception;
 
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.CannotGetJdbcConnectionException;
+import org.springframework.transaction.CannotCreateTransactionException;
 import org.springframework.web.bind.annotation.*;
 
+@Slf4j
 @RestControllerAdvice
 public class ErrorHandler {
 
@@ -18,6 +24,24 @@ public class ErrorHandler {
         return new ErrorResponse("Нарушена валидация запроса");
     }
 
+    @ExceptionHandler(ConflictException.class)
+    @ResponseStatus(HttpStatus.CONFLICT)
+    public ErrorResponse handleConflictException(ConflictException e) {
+        return new ErrorResponse("Данные изменены другим запросом");
+    }
+
+    /**
+     * Соединение не освободилось за {@code spring.datasource.hikari.connection-timeout}: пул занят,
+     * запрос можно повторить, как и отклонённый ограничителем одновременных запросов.
+     */
+    @ExceptionHandler({CannotGetJdbcConnectionException.class, CannotCreateTransactionException.class})
+    @ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+    public ErrorResponse handleConnectionUnavailable(Exception e, HttpServletResponse response) {
+        log.warn("Нет свободного соединения с БД: {}", e.getMessage());
+        response.setHeader(HttpHeaders.RETRY_AFTER, "1");
+        return new ErrorResponse("Сервер перегружен, повторите запрос позже");
+    }
+
     @ExceptionHandler(InternalServerException.class)
     @ResponseStatus(HttpStatus.INTERNAL_SERVER_ERROR)
     public ErrorResponse handleException(Exception e) {
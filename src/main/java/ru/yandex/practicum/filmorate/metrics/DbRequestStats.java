@@ -0,0 +1,42 @@
+package ru.yandex.practicum.filmorate.metrics;
+
+/**
+ * Счётчик SQL-запросов и времени их выполнения в рамках одного HTTP-запроса.
+ * Привязывается к потоку обработки фильтром {@link DbStatsFilter}; вне запроса ничего не считается.
+ */
+public final class DbRequestStats {
+    private static final ThreadLocal<DbRequestStats> CURRENT = new ThreadLocal<>();
+
+    private int statements;
+    private long nanos;
+
+    static DbRequestStats bind() {
+        DbRequestStats stats = new DbRequestStats();
+        CURRENT.set(stats);
+        return stats;
+    }
+
+    static void unbind() {
+        CURRENT.remove();
+    }
+
+    static DbRequestStats current() {
+        return CURRENT.get();
+    }
+
+    static void record(long elapsedNanos) {
+        DbRequestStats stats = CURRENT.get();
+        if (stats != null) {
+            stats.statements++;
+            stats.nanos += elapsedNanos;
+        }
+    }
+
+    public int getStatements() {
+        return statements;
+    }
+
+    public long getMillis() {
+        return nanos / 1_000_000;
+    }
+}
@@ -0,0 +1,73 @@
+package ru.yandex.practicum.filmorate.metrics;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.io.IOException;
+
+/**
+ * Считает обращения к БД за время обработки запроса, отдаёт их в заголовках ответа и в лог.
+ * Запросы, превысившие {@code filmorate.db.statement-budget}, логируются с предупреждением —
+ * обычно это признак N+1.
+ */
+@Slf4j
+@Component
+public class DbStatsFilter extends OncePerRequestFilter {
+    public static final String STATEMENTS_HEADER = "X-Db-Statements";
+    public static final String TIME_HEADER = "X-Db-Time-Ms";
+
+    private final MeterRegistry meterRegistry;
+    private final int statementBudget;
+
+    public DbStatsFilter(MeterRegistry meterRegistry,
+                         @Value("${filmorate.db.statement-budget:10}") int statementBudget) {
+        this.meterRegistry = meterRegistry;
+        this.statementBudget = statementBudget;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        DbRequestStats stats = DbRequestStats.bind();
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            DbRequestStats.unbind();
+            if (!response.isCommitted()) {
+                writeHeaders(response, stats);
+            }
+            report(request, stats);
+        }
+    }
+
+    private static void writeHeaders(HttpServletResponse response, DbRequestStats stats) {
+        response.setHeader(STATEMENTS_HEADER, String.valueOf(stats.getStatements()));
+        response.setHeader(TIME_HEADER, String.valueOf(stats.getMillis()));
+    }
+
+    private void report(HttpServletRequest request, DbRequestStats stats) {
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        String uri = pattern != null ? pattern.toString() : "UNKNOWN";
+        DistributionSummary.builder("filmorate.http.db.statements")
+                .description("Обращений к БД за один HTTP-запрос")
+                .tags("method", request.getMethod(), "uri", uri)
+                .register(meterRegistry)
+                .record(stats.getStatements());
+        if (stats.getStatements() > statementBudget) {
+            log.warn("{} {}: {} обращений к БД за {} мс, бюджет {}", request.getMethod(), request.getRequestURI(),
+                    stats.getStatements(), stats.getMillis(), statementBudget);
+        } else {
+            log.info("{} {}: {} обращений к БД за {} мс", request.getMethod(), request.getRequestURI(),
+                    stats.getStatements(), stats.getMillis());
+        }
+    }
+}
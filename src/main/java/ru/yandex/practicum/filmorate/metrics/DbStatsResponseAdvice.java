@@ -0,0 +1,34 @@
+package ru.yandex.practicum.filmorate.metrics;
+
+import org.springframework.core.MethodParameter;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyAdvice;
+
+/**
+ * Заголовки со статистикой обращений к БД для ответов с телом: после записи тела
+ * {@link DbStatsFilter} уже не может их выставить.
+ */
+@RestControllerAdvice
+public class DbStatsResponseAdvice implements ResponseBodyAdvice<Object> {
+
+    @Override
+    public boolean supports(MethodParameter returnType, Class<? extends HttpMessageConverter<?>> converterType) {
+        return true;
+    }
+
+    @Override
+    public Object beforeBodyWrite(Object body, MethodParameter returnType, MediaType selectedContentType,
+                                  Class<? extends HttpMessageConverter<?>> selectedConverterType,
+                                  ServerHttpRequest request, ServerHttpResponse response) {
+        DbRequestStats stats = DbRequestStats.current();
+        if (stats != null) {
+            response.getHeaders().set(DbStatsFilter.STATEMENTS_HEADER, String.valueOf(stats.getStatements()));
+            response.getHeaders().set(DbStatsFilter.TIME_HEADER, String.valueOf(stats.getMillis()));
+        }
+        return body;
+    }
+}
@@ -0,0 +1,118 @@
+package ru.yandex.practicum.filmorate.metrics;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.RequiredArgsConstructor;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.springframework.stereotype.Component;
+
+import java.lang.reflect.Method;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Метрики каждого метода интерфейсов {@code *Storage}: время выполнения (с гистограммой),
+ * число вызовов с разбивкой по исходу и количество возвращённых строк.
+ */
+@Aspect
+@Component
+@RequiredArgsConstructor
+public class StorageMetricsAspect {
+    private static final String STORAGE_PACKAGE = "ru.yandex.practicum.filmorate.storage";
+
+    private final MeterRegistry meterRegistry;
+
+    private final Map<Method, Meters> meters = new ConcurrentHashMap<>();
+
+    @Around("execution(* ru.yandex.practicum.filmorate.storage.*Storage.*(..))")
+    public Object measure(ProceedingJoinPoint joinPoint) throws Throwable {
+        Method method = ((MethodSignature) joinPoint.getSignature()).getMethod();
+        Meters methodMeters = meters.computeIfAbsent(method, this::createMeters);
+        Object[] args = joinPoint.getArgs();
+        AtomicLong streamed = wrapConsumers(args);
+        long start = System.nanoTime();
+        try {
+            Object result = joinPoint.proceed(args);
+            methodMeters.success().record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            long rows = streamed != null ? streamed.get() : countRows(result);
+            if (rows >= 0) {
+                methodMeters.rows().record(rows);
+            }
+            return result;
+        } catch (Throwable e) {
+            methodMeters.error().record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            throw e;
+        }
+    }
+
+    private Meters createMeters(Method method) {
+        String storage = storageInterface(method.getDeclaringClass()).getSimpleName();
+        String name = method.getName();
+        return new Meters(timer(storage, name, "success"), timer(storage, name, "error"),
+                DistributionSummary.builder("filmorate.storage.rows")
+                        .description("Строк, возвращённых методом хранилища")
+                        .tags("storage", storage, "method", name)
+                        .publishPercentileHistogram()
+                        .register(meterRegistry));
+    }
+
+    private Timer timer(String storage, String method, String outcome) {
+        return Timer.builder("filmorate.storage")
+                .description("Вызовы методов хранилищ")
+                .tags("storage", storage, "method", method, "outcome", outcome)
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+
+    private static Class<?> storageInterface(Class<?> type) {
+        if (type.isInterface()) {
+            return type;
+        }
+        for (Class<?> candidate : type.getInterfaces()) {
+            if (candidate.getPackageName().equals(STORAGE_PACKAGE)) {
+                return candidate;
+            }
+        }
+        return type;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static AtomicLong wrapConsumers(Object[] args) {
+        AtomicLong counter = null;
+        for (int i = 0; i < args.length; i++) {
+            if (args[i] instanceof Consumer<?> consumer) {
+                AtomicLong rows = counter = new AtomicLong();
+                args[i] = (Consumer<Object>) row -> {
+                    rows.incrementAndGet();
+                    ((Consumer<Object>) consumer).accept(row);
+                };
+            }
+        }
+        return counter;
+    }
+
+    private static long countRows(Object result) {
+        if (result instanceof Collection<?> collection) {
+            return collection.size();
+        }
+        if (result instanceof int[] ids) {
+            return ids.length;
+        }
+        if (result instanceof Optional<?> optional) {
+            return optional.isPresent() ? 1 : 0;
+        }
+        return result == null ? -1 : 1;
+    }
+
+    private record Meters(Timer success, Timer error, DistributionSummary rows) {
+    }
+}
@@ -7,7 +7,7 @@ import java.time.LocalDate;
 import java.util.LinkedHashSet;
 
 @Data
-@Builder
+@Builder(toBuilder = true)
 public class Film {
     private Integer id;
     private String name;
@@ -15,5 +15,18 @@ public class Film {
     private LocalDate releaseDate;
     private Integer duration;
     private Mpa mpa;
+    private Integer likeCount;
+    private Integer version;
     private final LinkedHashSet<Genre> genres = new LinkedHashSet<>();
+
+    /**
+     * Копия вместе с рейтингом и жанрами, которую можно менять, не трогая оригинал.
+     */
+    public Film copy() {
+        Film copy = toBuilder()
+                .mpa(mpa == null ? null : new Mpa(mpa.getId(), mpa.getName()))
+                .build();
+        genres.forEach(genre -> copy.genres.add(new Genre(genre.getId(), genre.getName())));
+        return copy;
+    }
 }
\ No newline at end of file
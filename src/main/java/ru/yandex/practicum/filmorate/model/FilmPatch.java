@@ -0,0 +1,21 @@
+package ru.yandex.practicum.filmorate.model;
+
+import lombok.Data;
+
+import java.time.LocalDate;
+import java.util.LinkedHashSet;
+
+/**
+ * Частичное изменение фильма: {@code null} — поле не меняется. Если задана {@code version},
+ * изменение применяется, только пока фильм не изменил кто-то другой.
+ */
+@Data
+public class FilmPatch {
+    private String name;
+    private String description;
+    private LocalDate releaseDate;
+    private Integer duration;
+    private Mpa mpa;
+    private LinkedHashSet<Genre> genres;
+    private Integer version;
+}
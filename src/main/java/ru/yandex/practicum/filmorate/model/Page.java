@@ -0,0 +1,59 @@
+package ru.yandex.practicum.filmorate.model;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import ru.yandex.practicum.filmorate.exception.ValidateException;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.List;
+import java.util.function.ToIntFunction;
+
+@Getter
+@RequiredArgsConstructor
+public class Page<T> {
+    public static final int MAX_LIMIT = 1000;
+
+    private static final String CURSOR_PREFIX = "id:";
+
+    private final List<T> items;
+    private final String next;
+
+    public static <T> Page<T> of(List<T> rows, int limit, ToIntFunction<T> idOf) {
+        if (rows.size() <= limit) {
+            return new Page<>(rows, null);
+        }
+        List<T> items = rows.subList(0, limit);
+        return new Page<>(items, encodeCursor(idOf.applyAsInt(items.get(limit - 1))));
+    }
+
+    public static int validateLimit(int limit) {
+        if (limit < 1 || limit > MAX_LIMIT) {
+            throw new ValidateException("Размер страницы должен быть от 1 до " + MAX_LIMIT);
+        }
+        return limit;
+    }
+
+    public static int decodeCursor(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return 0;
+        }
+        try {
+            if (cursor.chars().allMatch(Character::isDigit)) {
+                return Integer.parseInt(cursor);
+            }
+            String decoded = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            if (!decoded.startsWith(CURSOR_PREFIX)) {
+                throw new ValidateException("Некорректный курсор страницы");
+            }
+            return Integer.parseInt(decoded.substring(CURSOR_PREFIX.length()));
+        } catch (IllegalArgumentException e) {
+            throw new ValidateException("Некорректный курсор страницы");
+        }
+    }
+
+    private static String encodeCursor(int id) {
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString((CURSOR_PREFIX + id).getBytes(StandardCharsets.UTF_8));
+    }
+}
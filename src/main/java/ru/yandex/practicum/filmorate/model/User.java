@@ -6,11 +6,15 @@ import lombok.Data;
 import java.time.LocalDate;
 
 @Data
-@Builder
+@Builder(toBuilder = true)
 public class User {
     private Integer id;
     private String email;
     private String login;
     private String name;
     private LocalDate birthday;
+
+    public User copy() {
+        return toBuilder().build();
+    }
 }
\ No newline at end of file
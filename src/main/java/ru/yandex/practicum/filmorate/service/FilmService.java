@@ -1,67 +1,185 @@
 package ru.yandex.practicum.filmorate.service;
 
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataAccessException;
 import org.springframework.stereotype.Service;
+import ru.yandex.practicum.filmorate.exception.ConflictException;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
 import ru.yandex.practicum.filmorate.exception.ValidateException;
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmImportResult;
+import ru.yandex.practicum.filmorate.model.FilmPatch;
 import ru.yandex.practicum.filmorate.model.Genre;
 import ru.yandex.practicum.filmorate.model.Mpa;
+import ru.yandex.practicum.filmorate.model.Page;
 import ru.yandex.practicum.filmorate.storage.*;
 
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
 
+@Slf4j
 @RequiredArgsConstructor
 @Service
 public class FilmService {
+    private static final int IMPORT_CHUNK_SIZE = 1000;
+
     private final FilmStorage filmStorage;
     private final MpaStorage mpaStorage;
     private final GenreStorage genreStorage;
     private final LikeStorage likeStorage;
     private final UserStorage userStorage;
+    private final ContentVersions versions;
+    private final SingleFlight singleFlight;
 
     public Film create(Film film) {
-        if (film.getName() == null || film.getName().isBlank()) {
+        validate(film);
+        return filmStorage.create(film);
+    }
+
+    /**
+     * Сохраняет фильмы пачками по мере чтения. Если {@code films} бросает {@link ValidateException}
+     * (поток испорчен и читать дальше нельзя), уже сохранённые пачки остаются, оставшиеся прочитанные фильмы
+     * дописываются, а ошибка записывается в отчёт под номером непрочитанного фильма.
+     */
+    public List<FilmImportResult> importFilms(Iterator<Film> films) {
+        List<FilmImportResult> results = new ArrayList<>();
+        List<Film> chunk = new ArrayList<>(IMPORT_CHUNK_SIZE);
+        List<Integer> chunkIndexes = new ArrayList<>(IMPORT_CHUNK_SIZE);
+        int index = 0;
+        while (true) {
+            Film film;
+            try {
+                if (!films.hasNext()) {
+                    break;
+                }
+                film = films.next();
+            } catch (ValidateException e) {
+                log.warn("Импорт фильмов прерван на фильме {}: {}", index, e.getMessage());
+                results.add(new FilmImportResult(index, null, e.getMessage()));
+                break;
+            }
+            try {
+                if (film == null) {
+                    throw new ValidateException("Некорректные данные фильма");
+                }
+                validate(film);
+                chunk.add(film);
+                chunkIndexes.add(index);
+            } catch (ValidateException | NotFoundException e) {
+                results.add(new FilmImportResult(index, null, e.getMessage()));
+            }
+            index++;
+            if (chunk.size() == IMPORT_CHUNK_SIZE) {
+                importChunk(chunk, chunkIndexes, results);
+            }
+        }
+        importChunk(chunk, chunkIndexes, results);
+        results.sort(Comparator.comparingInt(FilmImportResult::getIndex));
+        return results;
+    }
+
+    private void importChunk(List<Film> chunk, List<Integer> chunkIndexes, List<FilmImportResult> results) {
+        if (chunk.isEmpty()) {
+            return;
+        }
+        try {
+            filmStorage.createAll(chunk);
+            for (int i = 0; i < chunk.size(); i++) {
+                results.add(new FilmImportResult(chunkIndexes.get(i), chunk.get(i).getId(), null));
+            }
+        } catch (DataAccessException e) {
+            log.warn("Не удалось сохранить пачку из {} фильмов", chunk.size(), e);
+            for (Integer chunkIndex : chunkIndexes) {
+                results.add(new FilmImportResult(chunkIndex, null, "Не удалось сохранить фильм"));
+            }
+        }
+        chunk.clear();
+        chunkIndexes.clear();
+    }
+
+    private void validate(Film film) {
+        if (film.getDescription() == null || film.getReleaseDate() == null || film.getDuration() == null
+                || film.getMpa() == null) {
+            throw new ValidateException("Не заполнены обязательные поля фильма");
+        }
+
+        if (film.getName() == null) {
             throw new ValidateException("Название фильма не может быть пустым");
         }
 
-        if (film.getDescription().length() > 200) {
+        validateFields(film.getName(), film.getDescription(), film.getReleaseDate(), film.getDuration(),
+                film.getMpa(), film.getGenres());
+    }
+
+    /**
+     * Проверяет заданные поля фильма; {@code null} не проверяется.
+     */
+    private void validateFields(String name, String description, LocalDate releaseDate, Integer duration, Mpa mpa,
+                                Collection<Genre> genres) {
+        if (name != null && name.isBlank()) {
+            throw new ValidateException("Название фильма не может быть пустым");
+        }
+
+        if (description != null && description.length() > 200) {
             throw new ValidateException("Максимальная длина описания — 200 символов");
         }
 
-        if (film.getReleaseDate().isBefore(LocalDate.of(1895, 12, 28))) {
+        if (releaseDate != null && releaseDate.isBefore(LocalDate.of(1895, 12, 28))) {
             throw new ValidateException("Дата релиза — не раньше 28 декабря 1895 года");
         }
 
-        if (film.getDuration() < 1) {
+        if (duration != null && duration < 1) {
             throw new ValidateException("Продолжительность фильма должна быть положительным числом");
         }
 
-        int mpaid = film.getMpa().getId();
-        Optional<Mpa> existingMpa = mpaStorage.findMpaById(mpaid);
-        if (existingMpa.isEmpty()) {
-            throw new NotFoundException("Рейтинг с id " + mpaid + " не найден");
+        if (mpa != null) {
+            int mpaid = mpa.getId();
+            Optional<Mpa> existingMpa = mpaStorage.findMpaById(mpaid);
+            if (existingMpa.isEmpty()) {
+                throw new NotFoundException("Рейтинг с id " + mpaid + " не найден");
+            }
         }
 
-        for (Genre genre : film.getGenres()) {
-            Optional<Genre> existingGenre = genreStorage.findGenreById(genre.getId());
-            if (existingGenre.isEmpty()) {
-                throw new NotFoundException("Жанр с id " + genre.getId() + " не найден");
+        if (genres != null) {
+            for (Genre genre : genres) {
+                Optional<Genre> existingGenre = genreStorage.findGenreById(genre.getId());
+                if (existingGenre.isEmpty()) {
+                    throw new NotFoundException("Жанр с id " + genre.getId() + " не найден");
+                }
             }
         }
-        return filmStorage.create(film);
     }
 
     public Film update(Film film) {
-        if (filmStorage.findFilmById(film.getId()).isEmpty()) {
-            throw new NotFoundException("Фильм не найден.");
-        }
         if (film.getReleaseDate().isBefore(LocalDate.of(1895, 12, 28))) {
             throw new ValidateException("Дата релиза — не раньше 28 декабря 1895 года");
         }
-        return filmStorage.update(film);
+        return filmStorage.update(film).orElseThrow(() -> notUpdated(film.getId()));
+    }
+
+    public Film patch(int id, FilmPatch patch) {
+        validateFields(patch.getName(), patch.getDescription(), patch.getReleaseDate(), patch.getDuration(),
+                patch.getMpa(), patch.getGenres());
+        return filmStorage.patch(id, patch).orElseThrow(() -> notUpdated(id));
+    }
+
+    /**
+     * Причина, по которой изменение не применилось; фильм перечитывается только в этом случае.
+     */
+    private RuntimeException notUpdated(int id) {
+        if (!filmStorage.existsById(id)) {
+            return new NotFoundException("Фильм не найден.");
+        }
+        return new ConflictException("Фильм " + id + " уже изменён другим запросом");
     }
 
     public List<Film> findAllFilms() {
@@ -70,32 +188,133 @@ public class FilmService {
         return films;
     }
 
+    public void streamAllFilms(Consumer<Film> consumer) {
+        filmStorage.streamAllFilms(consumer);
+    }
+
+    public Page<Film> findFilmsPage(String after, int limit) {
+        Page.validateLimit(limit);
+        List<Film> films = filmStorage.findFilmsAfter(Page.decodeCursor(after), limit + 1);
+        Page<Film> page = Page.of(films, limit, Film::getId);
+        genreStorage.findAllGenresByFilm(page.getItems());
+        return page;
+    }
+
     public Film findFilmById(int id) {
-        Film film = filmStorage.findFilmById(id).orElseThrow(() -> new NotFoundException("Фильм не найден."));
-        genreStorage.findAllGenresByFilm(List.of(film));
-        return film;
+        return singleFlight.read("film", id, versions.filmTag(id), () -> {
+            Film film = filmStorage.findFilmById(id).orElseThrow(() -> new NotFoundException("Фильм не найден."));
+            genreStorage.findAllGenresByFilm(List.of(film));
+            return film;
+        }, Film::copy);
     }
 
     public void addLike(int id, int userId) {
-        if (userStorage.findUserById(id).isEmpty() || userStorage.findUserById(userId).isEmpty()) {
-            throw new NotFoundException("Пользователь не найден.");
-        }
+        checkFilmAndUser(id, userId);
         likeStorage.addLike(id, userId);
     }
 
     public void removeLike(int id, int userId) {
-        if (userStorage.findUserById(id).isEmpty() || userStorage.findUserById(userId).isEmpty()) {
+        checkFilmAndUser(id, userId);
+        likeStorage.removeLike(id, userId);
+    }
+
+    private void checkFilmAndUser(int id, int userId) {
+        if (!filmStorage.existsById(id)) {
+            throw new NotFoundException("Фильм не найден.");
+        }
+        if (!userStorage.existsById(userId)) {
             throw new NotFoundException("Пользователь не найден.");
         }
-        likeStorage.removeLike(id, userId);
     }
 
     public List<Film> findPopular(int count) {
-        List<Film> films = filmStorage.findPopular(count);
+        return findPopular(count, null, null, null);
+    }
+
+    public List<Film> findPopular(int count, Integer genreId, Integer mpaId, Integer year) {
+        return findPopularWithTag(count, genreId, mpaId, year).value();
+    }
+
+    /**
+     * Популярные фильмы вместе с тегом, по которому они собраны: пока рейтинг пересчитывается,
+     * отдаётся предыдущий результат со своим тегом, а не текущий {@link #popularTag}.
+     */
+    public SingleFlight.Versioned<List<Film>> findPopularWithTag(int count, Integer genreId, Integer mpaId,
+                                                                 Integer year) {
+        Page.validateLimit(count);
+        validatePopularFilters(genreId, mpaId);
+        return singleFlight.readStale("popular", Arrays.asList(count, genreId, mpaId, year), versions.popularTag(count),
+                () -> {
+                    List<Film> films = filmStorage.findFilmsByIds(
+                            likeStorage.findPopularFilmIds(count, genreId, mpaId, year));
+                    genreStorage.findAllGenresByFilm(films);
+                    return films;
+                }, films -> films.stream().map(Film::copy).toList());
+    }
+
+    private void validatePopularFilters(Integer genreId, Integer mpaId) {
+        if (genreId != null && genreStorage.findGenreById(genreId).isEmpty()) {
+            throw new NotFoundException("Жанр с id " + genreId + " не найден");
+        }
+        if (mpaId != null && mpaStorage.findMpaById(mpaId).isEmpty()) {
+            throw new NotFoundException("Рейтинг с id " + mpaId + " не найден");
+        }
+    }
+
+    public List<Film> searchFilms(String query, String by, int count) {
+        if (query == null || query.isBlank()) {
+            throw new ValidateException("Поисковый запрос не должен быть пустым");
+        }
+        Page.validateLimit(count);
+        boolean byName = false;
+        boolean byDescription = false;
+        for (String field : by.split(",")) {
+            switch (field.trim()) {
+                case "name" -> byName = true;
+                case "description" -> byDescription = true;
+                default -> throw new ValidateException("Искать можно по полям name и description");
+            }
+        }
+        int[] ids = filmStorage.searchFilmIds(query, byName, byDescription, count);
+        List<Film> films = filmStorage.findFilmsByIds(Arrays.stream(ids).boxed().collect(Collectors.toList()));
+        genreStorage.findAllGenresByFilm(films);
+        return films;
+    }
+
+    public List<Film> findRecommendations(int userId, int count) {
+        Page.validateLimit(count);
+        if (!userStorage.existsById(userId)) {
+            throw new NotFoundException("Пользователь не найден.");
+        }
+        int[] ids = likeStorage.findRecommendedFilmIds(userId, count);
+        List<Film> films = filmStorage.findFilmsByIds(Arrays.stream(ids).boxed().collect(Collectors.toList()));
         genreStorage.findAllGenresByFilm(films);
         return films;
     }
 
+    /**
+     * Слабый ETag ответа {@link #findFilmById(int)}; вычисляется без обращения к БД. Для несуществующего фильма
+     * бросает {@link NotFoundException}, чтобы ответ 404 не получил тег и не подтвердился потом ответом 304.
+     */
+    public String filmTag(int id) {
+        if (!filmStorage.existsById(id)) {
+            throw new NotFoundException("Фильм не найден.");
+        }
+        return versions.filmTag(id);
+    }
+
+    /**
+     * Слабый ETag ответа {@link #findPopularWithTag}; как и сам поиск, отклоняет неизвестные жанр и MPA.
+     */
+    public String popularTag(int count, Integer genreId, Integer mpaId) {
+        validatePopularFilters(genreId, mpaId);
+        return versions.popularTag(Page.validateLimit(count));
+    }
+
+    public String referenceDataTag() {
+        return versions.referenceDataTag();
+    }
+
     public List<Mpa> findAllMpa() {
         return mpaStorage.findAllMpa();
     }
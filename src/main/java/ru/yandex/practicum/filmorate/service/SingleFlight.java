@@ -0,0 +1,235 @@
+package ru.yandex.practicum.filmorate.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.storage.ContentVersions;
+
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+import java.util.function.UnaryOperator;
+
+/**
+ * Объединяет одновременные одинаковые чтения: пока результат по ключу загружается, остальные запросы
+ * ждут его, а не повторяют те же запросы к БД. Результат помечается версией данных из {@link ContentVersions},
+ * прочитанной до начала загрузки, и ещё keep-ms отдаётся запросам с той же версией — он не старше её.
+ * {@link #readStale} после смены версии ещё stale-ms отдаёт прежний результат вместе с его версией,
+ * а новый загружает в фоне, не больше одной загрузки на ключ.
+ * <p>
+ * Чужую загрузку ждут не дольше wait-ms, после чего загружают сами или отдают прежний результат.
+ * Фоновые загрузки идут в собственном небольшом пуле с ограниченной очередью; если она заполнена,
+ * отдаётся прежний результат, а новый загрузит следующий запрос. Закэшированный результат наружу
+ * не отдаётся: каждый вызывающий получает копию, сделанную {@code copy}.
+ */
+@Slf4j
+@Component
+public class SingleFlight {
+    private final ThreadPoolExecutor executor;
+    private final MeterRegistry meterRegistry;
+    private final long keepNanos;
+    private final long staleNanos;
+    private final long waitMs;
+    private final Map<Key, Flight<?>> flights = new ConcurrentHashMap<>();
+    private final Map<String, Counter> counters = new ConcurrentHashMap<>();
+
+    public SingleFlight(MeterRegistry meterRegistry,
+                        @Value("${filmorate.single-flight.keep-ms:1000}") long keepMs,
+                        @Value("${filmorate.single-flight.stale-ms:2000}") long staleMs,
+                        @Value("${filmorate.single-flight.wait-ms:2000}") long waitMs,
+                        @Value("${filmorate.single-flight.refresh-threads:2}") int refreshThreads,
+                        @Value("${filmorate.single-flight.refresh-queue:100}") int refreshQueue) {
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("single-flight-");
+        threadFactory.setDaemon(true);
+        this.executor = new ThreadPoolExecutor(refreshThreads, refreshThreads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(refreshQueue), threadFactory);
+        this.meterRegistry = meterRegistry;
+        this.keepNanos = TimeUnit.MILLISECONDS.toNanos(keepMs);
+        this.staleNanos = TimeUnit.MILLISECONDS.toNanos(staleMs);
+        this.waitMs = waitMs;
+    }
+
+    public record Versioned<V>(V value, String version) {
+    }
+
+    /**
+     * Результат версии не старше {@code version}; если его нет, загружает в этом потоке или ждёт чужую загрузку.
+     */
+    public <V> V read(String cache, Object key, String version, Supplier<V> loader, UnaryOperator<V> copy) {
+        return read(cache, key, version, loader, copy, false).value();
+    }
+
+    /**
+     * Как {@link #read}, но вместо ожидания отдаёт недавний результат прежней версии; вызывающий
+     * должен помечать ответ версией результата, а не текущей.
+     */
+    public <V> Versioned<V> readStale(String cache, Object key, String version, Supplier<V> loader,
+                                      UnaryOperator<V> copy) {
+        return read(cache, key, version, loader, copy, true);
+    }
+
+    @Scheduled(fixedDelayString = "${filmorate.single-flight.evict-interval-ms:1000}")
+    public void evict() {
+        long now = System.nanoTime();
+        long keep = Math.max(keepNanos, staleNanos);
+        flights.values().removeIf(flight -> flight.succeeded() && now - flight.completedAt > keep);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    @SuppressWarnings("unchecked")
+    private <V> Versioned<V> read(String cache, Object key, String version, Supplier<V> loader, UnaryOperator<V> copy,
+                                  boolean stale) {
+        Key id = new Key(cache, key);
+        while (true) {
+            long now = System.nanoTime();
+            Flight<V> current = (Flight<V>) flights.get(id);
+            if (current != null && !current.result.isDone()) {
+                Flight<V> previous = current.previous;
+                if (stale && usable(previous, now, staleNanos)) {
+                    count(cache, "stale");
+                    return previous.versioned(copy);
+                }
+                if (stale || current.version.equals(version)) {
+                    count(cache, "coalesced");
+                    Versioned<V> awaited = current.await(waitMs, copy);
+                    if (awaited != null) {
+                        return awaited;
+                    }
+                    count(cache, "timeout");
+                    log.warn("Загрузка {} не завершилась за {} мс, загружаем без ожидания", id, waitMs);
+                    if (stale && previous != null && previous.succeeded()) {
+                        return previous.versioned(copy);
+                    }
+                    return new Versioned<>(loader.get(), version);
+                }
+            } else if (current != null && current.version.equals(version) && usable(current, now, keepNanos)) {
+                count(cache, "hit");
+                return current.versioned(copy);
+            } else if (stale && usable(current, now, staleNanos)) {
+                Flight<V> refresh = new Flight<>(version, current);
+                if (flights.replace(id, current, refresh)) {
+                    startRefresh(cache, id, current, refresh, loader);
+                }
+                count(cache, "stale");
+                return current.versioned(copy);
+            }
+            Flight<V> flight = new Flight<>(version, null);
+            if (current == null ? flights.putIfAbsent(id, flight) == null : flights.replace(id, current, flight)) {
+                count(cache, "miss");
+                return load(id, flight, loader).versioned(copy);
+            }
+        }
+    }
+
+    private <V> void startRefresh(String cache, Key id, Flight<V> current, Flight<V> refresh, Supplier<V> loader) {
+        try {
+            executor.execute(() -> refresh(id, refresh, loader));
+        } catch (RejectedExecutionException e) {
+            flights.replace(id, refresh, current);
+            log.warn("Очередь фоновых загрузок заполнена, {} загрузит следующий запрос", id);
+            return;
+        }
+        counters.computeIfAbsent(cache + "/refresh", name -> Counter.builder("filmorate.single-flight.refreshes")
+                .description("Фоновые загрузки новой версии после отдачи прежней")
+                .tag("cache", cache)
+                .register(meterRegistry)).increment();
+    }
+
+    private <V> Flight<V> load(Key id, Flight<V> flight, Supplier<V> loader) {
+        try {
+            flight.complete(loader.get());
+            return flight;
+        } catch (RuntimeException | Error e) {
+            flights.remove(id, flight);
+            flight.result.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    private <V> void refresh(Key id, Flight<V> flight, Supplier<V> loader) {
+        try {
+            load(id, flight, loader);
+        } catch (RuntimeException e) {
+            log.warn("Не удалось обновить {} в фоне, следующий запрос загрузит его сам", id, e);
+        }
+    }
+
+    private static boolean usable(Flight<?> flight, long now, long window) {
+        return flight != null && flight.succeeded() && now - flight.completedAt < window;
+    }
+
+    private void count(String cache, String outcome) {
+        counters.computeIfAbsent(cache + '/' + outcome, name -> Counter.builder("filmorate.single-flight.reads")
+                .description("Чтения через SingleFlight: hit, coalesced, stale, miss или timeout")
+                .tag("cache", cache)
+                .tag("outcome", outcome)
+                .register(meterRegistry)).increment();
+    }
+
+    private record Key(String cache, Object key) {
+    }
+
+    private static final class Flight<V> {
+        private final String version;
+        private final CompletableFuture<V> result = new CompletableFuture<>();
+        private volatile Flight<V> previous;
+        private volatile long completedAt;
+
+        private Flight(String version, Flight<V> previous) {
+            this.version = version;
+            this.previous = previous;
+        }
+
+        private void complete(V value) {
+            completedAt = System.nanoTime();
+            previous = null;
+            result.complete(value);
+        }
+
+        private boolean succeeded() {
+            return result.isDone() && !result.isCompletedExceptionally();
+        }
+
+        private Versioned<V> versioned(UnaryOperator<V> copy) {
+            return new Versioned<>(copy.apply(result.join()), version);
+        }
+
+        /**
+         * Результат загрузки или {@code null}, если она не завершилась за {@code waitMs}.
+         */
+        private Versioned<V> await(long waitMs, UnaryOperator<V> copy) {
+            try {
+                return new Versioned<>(copy.apply(result.get(waitMs, TimeUnit.MILLISECONDS)), version);
+            } catch (TimeoutException e) {
+                return null;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return null;
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof RuntimeException cause) {
+                    throw cause;
+                }
+                if (e.getCause() instanceof Error cause) {
+                    throw cause;
+                }
+                throw new IllegalStateException(e.getCause());
+            }
+        }
+    }
+}
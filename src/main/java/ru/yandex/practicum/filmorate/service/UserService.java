@@ -4,7 +4,9 @@ import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
 import ru.yandex.practicum.filmorate.exception.ValidateException;
+import ru.yandex.practicum.filmorate.model.Page;
 import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.ContentVersions;
 import ru.yandex.practicum.filmorate.storage.FriendStorage;
 import ru.yandex.practicum.filmorate.storage.UserStorage;
 
@@ -16,11 +18,18 @@ import java.util.List;
 public class UserService {
     private final UserStorage userStorage;
     private final FriendStorage friendStorage;
+    private final ContentVersions versions;
+    private final SingleFlight singleFlight;
 
     public List<User> findAll() {
         return userStorage.findAll();
     }
 
+    public Page<User> findUsersPage(String after, int limit) {
+        Page.validateLimit(limit);
+        return Page.of(userStorage.findUsersAfter(Page.decodeCursor(after), limit + 1), limit, User::getId);
+    }
+
     public User create(User user) {
         validate(user);
         if (user.getLogin() == null || user.getLogin().isBlank() || user.getLogin().contains(" ")) {
@@ -41,18 +50,19 @@ public class UserService {
 
     public User update(User user) {
         validate(user);
-        if (userStorage.findUserById(user.getId()).isEmpty()) {
+        if (!userStorage.existsById(user.getId())) {
             throw new NotFoundException("Пользователь не найден.");
         }
         return userStorage.update(user);
     }
 
     public User findUserById(int id) {
-        return userStorage.findUserById(id).orElseThrow(() -> new NotFoundException("Пользователь не найден"));
+        return singleFlight.read("user", id, versions.userTag(id), () -> userStorage.findUserById(id)
+                .orElseThrow(() -> new NotFoundException("Пользователь не найден")), User::copy);
     }
 
     public void addFriend(int id, int friendId) {
-        if (userStorage.findUserById(id).isEmpty() || userStorage.findUserById(friendId).isEmpty()) {
+        if (!userStorage.existsById(id) || !userStorage.existsById(friendId)) {
             throw new NotFoundException("Пользователь не найден.");
         }
         if (id < 0 || friendId < 0) {
@@ -62,18 +72,36 @@ public class UserService {
     }
 
     public List<User> findAllFriends(int id) {
-        if (userStorage.findUserById(id).isEmpty()) {
+        if (!userStorage.existsById(id)) {
+            throw new NotFoundException("Не найден");
+        }
+        return singleFlight.read("friends", id, versions.usersTag(), () -> friendStorage.findAllFriends(id),
+                friends -> friends.stream().map(User::copy).toList());
+    }
+
+    public Page<User> findFriendsPage(int id, String after, int limit) {
+        Page.validateLimit(limit);
+        if (!userStorage.existsById(id)) {
             throw new NotFoundException("Не найден");
         }
-        return friendStorage.findAllFriends(id);
+        List<User> friends = friendStorage.findFriendsAfter(id, Page.decodeCursor(after), limit + 1);
+        return Page.of(friends, limit, User::getId);
     }
 
     public List<User> findCommonFriends(int id, int otherId) {
         return friendStorage.findCommonFriends(id, otherId);
     }
 
+    public List<User> findSuggestions(int id, int limit) {
+        Page.validateLimit(limit);
+        if (!userStorage.existsById(id)) {
+            throw new NotFoundException("Пользователь не найден.");
+        }
+        return friendStorage.findSuggestions(id, limit);
+    }
+
     public void removeFriend(int id, int friendId) {
-        if (userStorage.findUserById(id).isEmpty() || userStorage.findUserById(friendId).isEmpty()) {
+        if (!userStorage.existsById(id) || !userStorage.existsById(friendId)) {
             throw new NotFoundException("Пользователь не найден.");
         }
         friendStorage.removeFriend(id, friendId);
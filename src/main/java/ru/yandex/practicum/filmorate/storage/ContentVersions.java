@@ -0,0 +1,107 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Счётчики версий данных, из которых строятся ETag и ключи {@code SingleFlight}: фильмы и пользователи
+ * (каждый отдельно и все вместе), лайки и справочники.
+ * Счётчик увеличивается после того, как изменение стало видно читателям (после коммита, если транзакция открыта),
+ * поэтому ответ, собранный по новой версии, не может содержать старые данные. Случайная эпоха узла
+ * в каждом теге не даёт совпасть тегам, выданным до перезапуска или другим узлом.
+ * Теги слабые: тег означает версию данных, а не байты ответа, и Tomcat сжимает ответ только со слабым тегом.
+ */
+@Component
+public class ContentVersions {
+    private final String epoch = Long.toHexString(ThreadLocalRandom.current().nextLong());
+    private final AtomicLong films = new AtomicLong();
+    private final AtomicLong likes = new AtomicLong();
+    private final AtomicLong referenceData = new AtomicLong();
+    private final AtomicLong allFilms = new AtomicLong();
+    private final AtomicLong users = new AtomicLong();
+    private final Map<Integer, Long> filmVersions = new ConcurrentHashMap<>();
+    private final Map<Integer, Long> userVersions = new ConcurrentHashMap<>();
+
+    public void filmChanged(int filmId) {
+        afterCommit(() -> filmVersions.merge(filmId, films.incrementAndGet(), Math::max));
+    }
+
+    /**
+     * Изменение, затронувшее неизвестный набор фильмов, например пересчёт like_count.
+     */
+    public void allFilmsChanged() {
+        afterCommit(() -> {
+            allFilms.incrementAndGet();
+            films.incrementAndGet();
+        });
+    }
+
+    public void likesChanged() {
+        afterCommit(likes::incrementAndGet);
+    }
+
+    public void userChanged(int userId) {
+        afterCommit(() -> userVersions.merge(userId, users.incrementAndGet(), Math::max));
+    }
+
+    /**
+     * Изменение дружбы: меняет списки друзей, но не самих пользователей.
+     */
+    public void friendsChanged() {
+        afterCommit(users::incrementAndGet);
+    }
+
+    public void referenceDataChanged() {
+        afterCommit(referenceData::incrementAndGet);
+    }
+
+    public String filmTag(int filmId) {
+        return tag("f", referenceData.get(), allFilms.get(), filmVersions.getOrDefault(filmId, 0L));
+    }
+
+    public String popularTag(int count) {
+        return tag("p", referenceData.get(), films.get(), likes.get(), count);
+    }
+
+    public String userTag(int userId) {
+        return tag("u", userVersions.getOrDefault(userId, 0L));
+    }
+
+    /**
+     * Версия любых списков пользователей: меняется при изменении любого пользователя или дружбы.
+     */
+    public String usersTag() {
+        return tag("l", users.get());
+    }
+
+    public String referenceDataTag() {
+        return tag("r", referenceData.get());
+    }
+
+    private String tag(String kind, long... versions) {
+        StringBuilder tag = new StringBuilder("W/\"").append(kind).append(epoch);
+        for (long version : versions) {
+            tag.append('.').append(Long.toString(version, 36));
+        }
+        return tag.append('"').toString();
+    }
+
+    private static void afterCommit(Runnable bump) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    bump.run();
+                }
+            });
+        } else {
+            bump.run();
+        }
+    }
+}
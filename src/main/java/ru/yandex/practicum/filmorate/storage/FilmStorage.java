@@ -1,18 +1,39 @@
 package ru.yandex.practicum.filmorate.storage;
 
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmPatch;
 
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Consumer;
 
 public interface FilmStorage {
     Film create(Film film);
 
-    Film update(Film film);
+    List<Film> createAll(List<Film> films);
+
+    /**
+     * Перезаписывает фильм целиком; если у фильма задана версия, только при её совпадении с текущей.
+     * Пустой результат — фильма нет или версия устарела.
+     */
+    Optional<Film> update(Film film);
+
+    /**
+     * Записывает только заданные поля {@code patch} и изменившиеся жанры; пустой результат — как у {@link #update}.
+     */
+    Optional<Film> patch(int id, FilmPatch patch);
 
     List<Film> findAllFilms();
 
-    List<Film> findPopular(int count);
+    List<Film> findFilmsAfter(int afterId, int limit);
+
+    void streamAllFilms(Consumer<Film> consumer);
+
+    List<Film> findFilmsByIds(List<Integer> ids);
+
+    int[] searchFilmIds(String query, boolean byName, boolean byDescription, int count);
 
     Optional<Film> findFilmById(int id);
+
+    boolean existsById(int id);
 }
\ No newline at end of file
@@ -11,7 +11,11 @@ public interface FriendStorage {
 
     List<User> findAllFriends(int id);
 
+    List<User> findFriendsAfter(int id, int afterId, int limit);
+
     List<User> findCommonFriends(int id, int otherId);
 
+    List<User> findSuggestions(int id, int limit);
+
     User findFriendsByUserId(int id);
 }
\ No newline at end of file
@@ -1,7 +1,18 @@
 package ru.yandex.practicum.filmorate.storage;
 
+import java.util.List;
+
 public interface LikeStorage {
     void addLike(int id, int userId);
 
     void removeLike(int id, int userId);
+
+    List<Integer> findPopularFilmIds(int count);
+
+    /**
+     * Самые популярные фильмы заданного жанра, рейтинга MPA и года выпуска; {@code null} — без условия.
+     */
+    List<Integer> findPopularFilmIds(int count, Integer genreId, Integer mpaId, Integer year);
+
+    int[] findRecommendedFilmIds(int userId, int count);
 }
\ No newline at end of file
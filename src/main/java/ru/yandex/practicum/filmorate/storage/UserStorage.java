@@ -12,5 +12,11 @@ public interface UserStorage {
 
     List<User> findAll();
 
+    List<User> findUsersAfter(int afterId, int limit);
+
     Optional<User> findUserById(int id);
+
+    boolean existsById(int id);
+
+    List<User> findUsersByIds(int[] ids);
 }
\ No newline at end of file
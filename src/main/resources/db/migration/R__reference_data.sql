@@ -1,20 +1,12 @@
-SET REFERENTIAL_INTEGRITY FALSE;
-
-DELETE FROM films;
-DELETE FROM mpa_rating;
-DELETE FROM genres;
-
-SET REFERENTIAL_INTEGRITY TRUE;
-
-INSERT INTO mpa_rating(rating_id, name)
+MERGE INTO mpa_rating(rating_id, name) KEY(rating_id)
 VALUES (1, 'G'),
        (2, 'PG'),
        (3, 'PG-13'),
        (4, 'R'),
        (5, 'NC-17');
 
-insert into genres(genre_id, name)
-values (1, 'Комедия'),
+MERGE INTO genres(genre_id, name) KEY(genre_id)
+VALUES (1, 'Комедия'),
        (2, 'Драма'),
        (3, 'Мультфильм'),
        (4, 'Триллер'),
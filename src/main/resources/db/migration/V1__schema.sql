@@ -26,9 +26,12 @@ CREATE TABLE IF NOT EXISTS films(
     releaseDate DATE NOT NULL,
     duration    INT,
     rating_id   INT,
+    like_count  INT DEFAULT 0 NOT NULL,
     FOREIGN KEY(rating_id) REFERENCES mpa_rating(rating_id)
 );
 
+ALTER TABLE films ADD COLUMN IF NOT EXISTS like_count INT DEFAULT 0 NOT NULL;
+
 CREATE TABLE IF NOT EXISTS likes(
     film_id INT,
     user_id INT,
@@ -48,4 +51,12 @@ CREATE TABLE IF NOT EXISTS film_genres(
     genre_id INT,
     FOREIGN KEY(film_id) REFERENCES films(film_id),
     FOREIGN KEY(genre_id) REFERENCES genres(genre_id)
-);
\ No newline at end of file
+);
+CREATE TABLE IF NOT EXISTS replication_heartbeat(
+    id      INT PRIMARY KEY,
+    beat_at BIGINT NOT NULL
+);
+
+CREATE INDEX IF NOT EXISTS films_popular_idx ON films(like_count DESC, film_id);
+CREATE INDEX IF NOT EXISTS likes_film_user_idx ON likes(film_id, user_id);
+CREATE INDEX IF NOT EXISTS friendship_friend_user_idx ON friendship(friend_id, user_id);
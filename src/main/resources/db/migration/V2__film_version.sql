@@ -0,0 +1 @@
+ALTER TABLE films ADD COLUMN IF NOT EXISTS version INT DEFAULT 0 NOT NULL;
@@ -0,0 +1,10 @@
+CREATE TABLE IF NOT EXISTS change_log(
+    id         BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    node       VARCHAR(36) NOT NULL,
+    kind       VARCHAR(16) NOT NULL,
+    first_id   INT NOT NULL,
+    second_id  INT,
+    created_at TIMESTAMP DEFAULT LOCALTIMESTAMP NOT NULL
+);
+
+CREATE INDEX IF NOT EXISTS change_log_created_idx ON change_log(created_at);
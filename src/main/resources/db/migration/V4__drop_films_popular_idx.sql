@@ -0,0 +1 @@
+DROP INDEX IF EXISTS films_popular_idx;
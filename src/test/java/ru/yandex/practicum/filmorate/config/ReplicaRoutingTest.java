@@ -0,0 +1,109 @@
+package ru.yandex.practicum.filmorate.config;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.http.Cookie;
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.RequestBuilder;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.awaitility.Awaitility.await;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Основная БД и реплика — две разные H2 в памяти, поэтому по содержимому ответа видно, откуда он прочитан:
+ * пользователь {@code replica-only} есть только в реплике.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=" + ReplicaRoutingTest.PRIMARY_URL,
+        "filmorate.datasource.replicas[0].url=" + ReplicaRoutingTest.REPLICA_URL,
+        "filmorate.datasource.heartbeat-interval-ms=100",
+        "filmorate.datasource.max-lag-ms=600000"
+})
+@AutoConfigureMockMvc
+class ReplicaRoutingTest {
+    static final String PRIMARY_URL = "jdbc:h2:mem:routing-primary;DB_CLOSE_DELAY=-1";
+    static final String REPLICA_URL = "jdbc:h2:mem:routing-replica;DB_CLOSE_DELAY=-1";
+
+    private static final String REPLICA_ONLY = "replica-only";
+
+    @Autowired
+    private MockMvc mockMvc;
+    @Autowired
+    private ObjectMapper objectMapper;
+    @Autowired
+    private ReplicaDataSources dataSources;
+
+    @BeforeAll
+    static void createReplica() throws SQLException {
+        Flyway.configure().dataSource(REPLICA_URL, "sa", "password").load().migrate();
+        try (Connection connection = DriverManager.getConnection(REPLICA_URL, "sa", "password")) {
+            try (PreparedStatement statement = connection.prepareStatement(
+                    "INSERT INTO users (email, login, birthday) VALUES ('replica@mail.ru', ?, '1990-01-01')")) {
+                statement.setString(1, REPLICA_ONLY);
+                statement.executeUpdate();
+            }
+            try (PreparedStatement statement = connection.prepareStatement(
+                    "INSERT INTO replication_heartbeat (id, beat_at) VALUES (1, ?)")) {
+                statement.setLong(1, System.currentTimeMillis());
+                statement.executeUpdate();
+            }
+        }
+    }
+
+    @Test
+    void readsGoToReplicaUntilClientWrites() throws Exception {
+        await().atMost(Duration.ofSeconds(5)).until(() -> dataSources.lagMs(0) < 600_000);
+
+        assertTrue(logins(get("/users")).contains(REPLICA_ONLY), "чтение без изменений должно идти на реплику");
+
+        MockHttpServletResponse created = mockMvc.perform(post("/users")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"email\": \"writer@mail.ru\", \"login\": \"writer\", " +
+                                "\"birthday\": \"1990-01-01\"}"))
+                .andExpect(status().isCreated())
+                .andReturn().getResponse();
+        Cookie sticky = created.getCookie(ReadYourWritesFilter.COOKIE);
+        assertNotNull(sticky, "изменяющий запрос должен выставить cookie");
+
+        Set<String> afterWrite = logins(get("/users").cookie(sticky));
+        assertTrue(afterWrite.contains("writer"), "клиент должен видеть собственное изменение");
+        assertFalse(afterWrite.contains(REPLICA_ONLY), "после изменения чтение должно идти в основную БД");
+
+        Set<String> otherClient = logins(get("/users"));
+        assertTrue(otherClient.contains(REPLICA_ONLY), "клиент без cookie по-прежнему читает с реплики");
+        assertFalse(otherClient.contains("writer"));
+    }
+
+    private Set<String> logins(RequestBuilder request) throws Exception {
+        String body = mockMvc.perform(request)
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString(StandardCharsets.UTF_8);
+        Set<String> logins = new HashSet<>();
+        for (JsonNode user : objectMapper.readTree(body)) {
+            logins.add(user.get("login").asText());
+        }
+        return logins;
+    }
+}
@@ -0,0 +1,89 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.http.HttpHeaders;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Mpa;
+import ru.yandex.practicum.filmorate.service.FilmService;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.LocalDate;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Сжатие делает Tomcat, поэтому тест идёт через настоящий HTTP, а не MockMvc.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = "spring.datasource.url=jdbc:h2:mem:compression;DB_CLOSE_DELAY=-1")
+class CompressionTest {
+    private static final int FILMS = 50;
+
+    private final HttpClient client = HttpClient.newHttpClient();
+
+    @LocalServerPort
+    private int port;
+    @Autowired
+    private FilmService filmService;
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @BeforeEach
+    void createFilms() {
+        while (filmService.findAllFilms().size() < FILMS) {
+            filmService.create(Film.builder()
+                    .name("Фильм для сжатия")
+                    .description("Достаточно длинное описание, чтобы ответ со списком фильмов был больше 2 КБ")
+                    .releaseDate(LocalDate.of(2000, 1, 1))
+                    .duration(90)
+                    .mpa(new Mpa(1, null))
+                    .build());
+        }
+    }
+
+    @Test
+    void largePopularResponseIsGzippedWithWeakEtag() throws Exception {
+        HttpResponse<byte[]> response = get("/films/popular?count=" + FILMS, "Accept-Encoding", "gzip");
+
+        assertEquals(200, response.statusCode());
+        assertEquals("gzip", response.headers().firstValue(HttpHeaders.CONTENT_ENCODING).orElse(null));
+        String etag = response.headers().firstValue(HttpHeaders.ETAG).orElseThrow();
+        assertTrue(etag.startsWith("W/\""), etag);
+        try (InputStream body = new GZIPInputStream(new ByteArrayInputStream(response.body()))) {
+            assertEquals(FILMS, objectMapper.readTree(body).size());
+        }
+
+        HttpResponse<byte[]> notModified = get("/films/popular?count=" + FILMS, "If-None-Match", etag);
+        assertEquals(304, notModified.statusCode());
+    }
+
+    @Test
+    void responseIsPlainWithoutAcceptEncoding() throws Exception {
+        HttpResponse<byte[]> response = get("/films/popular?count=" + FILMS, "Accept", "application/json");
+
+        assertEquals(200, response.statusCode());
+        assertTrue(response.headers().firstValue(HttpHeaders.CONTENT_ENCODING).isEmpty());
+        assertEquals(FILMS, objectMapper.readTree(response.body()).size());
+    }
+
+    private HttpResponse<byte[]> get(String path, String header, String value) throws IOException,
+            InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + path))
+                .header(header, value)
+                .build();
+        return client.send(request, HttpResponse.BodyHandlers.ofByteArray());
+    }
+}
@@ -0,0 +1,267 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.ResultMatcher;
+import ru.yandex.practicum.filmorate.metrics.DbStatsFilter;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.Mpa;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.service.FilmService;
+import ru.yandex.practicum.filmorate.service.UserService;
+import ru.yandex.practicum.filmorate.storage.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.UserStorage;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Запросы к {@code /films} через MockMvc над отдельной H2 в памяти.
+ */
+@SpringBootTest(properties = "spring.datasource.url=jdbc:h2:mem:controllers;DB_CLOSE_DELAY=-1")
+@AutoConfigureMockMvc
+class FilmControllerTest {
+    private static final int IMPORT_CHUNK_SIZE = 1000;
+
+    @Autowired
+    private MockMvc mockMvc;
+    @Autowired
+    private ObjectMapper objectMapper;
+    @Autowired
+    private FilmStorage filmStorage;
+    @Autowired
+    private FilmService filmService;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private UserService userService;
+    @Autowired
+    private UserStorage userStorage;
+
+    @Test
+    void importKeepsSavedChunksWhenJsonBreaks() throws Exception {
+        int before = filmStorage.findAllFilms().size();
+        StringBuilder body = new StringBuilder();
+        for (int i = 0; i <= IMPORT_CHUNK_SIZE; i++) {
+            body.append(film("Импорт " + i)).append('\n');
+        }
+        body.append("{\"name\": \"Обрыв\", \"description\": ]\n");
+        body.append(film("Не прочитан")).append('\n');
+
+        String response = mockMvc.perform(post("/films/batch")
+                        .contentType(FilmController.NDJSON)
+                        .content(body.toString()))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString(StandardCharsets.UTF_8);
+
+        JsonNode results = objectMapper.readTree(response);
+        assertEquals(IMPORT_CHUNK_SIZE + 2, results.size());
+        for (int i = 0; i <= IMPORT_CHUNK_SIZE; i++) {
+            assertEquals(i, results.get(i).get("index").asInt());
+            assertNotNull(results.get(i).get("id").numberValue(), "фильм " + i + " не сохранён");
+        }
+        JsonNode broken = results.get(IMPORT_CHUNK_SIZE + 1);
+        assertEquals(IMPORT_CHUNK_SIZE + 1, broken.get("index").asInt());
+        assertNull(broken.get("id").numberValue());
+        assertTrue(broken.get("error").asText().startsWith("Некорректный JSON"), broken.toString());
+        assertEquals(before + IMPORT_CHUNK_SIZE + 1, filmStorage.findAllFilms().size());
+    }
+
+    @Test
+    void referenceDataReloadServesChangedGenre() throws Exception {
+        String tag = mockMvc.perform(get("/genres/6"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader("ETag");
+        jdbcTemplate.update("UPDATE genres SET name = 'Экшен' WHERE genre_id = 6");
+        try {
+            mockMvc.perform(post("/actuator/referencedata")).andExpect(status().isOk());
+
+            MockHttpServletResponse reloaded = mockMvc.perform(get("/genres/6").header("If-None-Match", tag))
+                    .andExpect(status().isOk())
+                    .andReturn().getResponse();
+            assertEquals("Экшен", objectMapper.readTree(reloaded.getContentAsString(StandardCharsets.UTF_8))
+                    .get("name").asText());
+            assertNotEquals(tag, reloaded.getHeader("ETag"));
+        } finally {
+            jdbcTemplate.update("UPDATE genres SET name = 'Боевик' WHERE genre_id = 6");
+            mockMvc.perform(post("/actuator/referencedata")).andExpect(status().isOk());
+        }
+    }
+
+    @Test
+    void notFoundCarriesNoEtag() throws Exception {
+        for (String path : List.of("/films/" + Integer.MAX_VALUE, "/films/popular?genreId=999",
+                "/films/popular?mpaId=999", "/genres/999", "/mpa/999")) {
+            mockMvc.perform(get(path))
+                    .andExpect(status().isNotFound())
+                    .andExpect(header().doesNotExist("ETag"));
+            mockMvc.perform(get(path).header("If-None-Match", "*"))
+                    .andExpect(status().isNotFound());
+        }
+    }
+
+    @Test
+    void patchChangesOnlyGivenFields() throws Exception {
+        Film film = createFilm(1, 2);
+
+        JsonNode patched = patchFilm(film.getId(), "{\"name\": \"Новое название\"}", status().isOk());
+
+        assertEquals("Новое название", patched.get("name").asText());
+        assertEquals(film.getDescription(), patched.get("description").asText());
+        assertEquals(film.getReleaseDate().toString(), patched.get("releaseDate").asText());
+        assertEquals(film.getVersion() + 1, patched.get("version").asInt());
+        assertEquals(List.of(1, 2), genreIds(patched));
+    }
+
+    @Test
+    void patchWithStaleVersionIsConflict() throws Exception {
+        Film film = createFilm();
+        String body = "{\"duration\": 120, \"version\": " + film.getVersion() + "}";
+
+        assertEquals(film.getVersion() + 1, patchFilm(film.getId(), body, status().isOk()).get("version").asInt());
+        patchFilm(film.getId(), "{\"duration\": 150, \"version\": " + film.getVersion() + "}",
+                status().isConflict());
+
+        Film current = filmService.findFilmById(film.getId());
+        assertEquals(120, current.getDuration());
+        assertEquals(film.getVersion() + 1, current.getVersion());
+    }
+
+    @Test
+    void patchOfMissingFilmIsNotFoundEvenWithVersion() throws Exception {
+        int missing = Integer.MAX_VALUE;
+
+        patchFilm(missing, "{\"name\": \"Нет такого\"}", status().isNotFound());
+        patchFilm(missing, "{\"name\": \"Нет такого\", \"version\": 0}", status().isNotFound());
+        patchFilm(missing, "{}", status().isNotFound());
+    }
+
+    @Test
+    void emptyPatchKeepsVersion() throws Exception {
+        Film film = createFilm(3);
+
+        JsonNode unchanged = patchFilm(film.getId(), "{}", status().isOk());
+        assertEquals(film.getVersion(), unchanged.get("version").asInt());
+        assertEquals(film.getName(), unchanged.get("name").asText());
+        assertEquals(List.of(3), genreIds(unchanged));
+
+        patchFilm(film.getId(), "{\"version\": " + film.getVersion() + "}", status().isOk());
+        patchFilm(film.getId(), "{\"version\": " + (film.getVersion() + 1) + "}", status().isConflict());
+        assertEquals(film.getVersion(), filmService.findFilmById(film.getId()).getVersion());
+    }
+
+    @Test
+    void genresSyncedByDiff() throws Exception {
+        Film film = createFilm(1, 2);
+        Map<Integer, Integer> before = genreRows(film.getId());
+
+        patchFilm(film.getId(), "{\"genres\": [{\"id\": 2}, {\"id\": 3}]}", status().isOk());
+        Map<Integer, Integer> after = genreRows(film.getId());
+        assertEquals(List.of(2, 3), List.copyOf(after.keySet()));
+        assertEquals(before.get(2), after.get(2), "неизменённый жанр не должен перезаписываться");
+        assertTrue(after.get(3) > before.get(2));
+
+        patchFilm(film.getId(), "{\"genres\": [{\"id\": 3}, {\"id\": 2}]}", status().isOk());
+        assertEquals(after, genreRows(film.getId()), "тот же набор жанров в другом порядке ничего не меняет");
+
+        patchFilm(film.getId(), "{\"genres\": []}", status().isOk());
+        assertTrue(genreRows(film.getId()).isEmpty());
+    }
+
+    @Test
+    void likeChecksFilmIdAgainstFilms() throws Exception {
+        int userId = userService.create(User.builder()
+                .email("liker@mail.ru")
+                .login("liker")
+                .birthday(LocalDate.of(1990, 1, 1))
+                .build()).getId();
+        // Id фильма, который не совпадает ни с одним id пользователя: раньше он искался среди пользователей
+        Film film = createFilm();
+        while (userStorage.existsById(film.getId())) {
+            film = createFilm();
+        }
+
+        mockMvc.perform(put("/films/{id}/like/{userId}", film.getId(), userId))
+                .andExpect(status().isOk());
+        mockMvc.perform(put("/films/{id}/like/{userId}", Integer.MAX_VALUE, userId))
+                .andExpect(status().isNotFound())
+                .andExpect(header().string(DbStatsFilter.STATEMENTS_HEADER, "0"));
+        mockMvc.perform(put("/films/{id}/like/{userId}", film.getId(), Integer.MAX_VALUE))
+                .andExpect(status().isNotFound())
+                .andExpect(header().string(DbStatsFilter.STATEMENTS_HEADER, "0"));
+        mockMvc.perform(delete("/films/{id}/like/{userId}", film.getId(), userId))
+                .andExpect(status().isOk());
+    }
+
+    private Film createFilm(int... genreIds) {
+        Film film = Film.builder()
+                .name("Изменяемый")
+                .description("Описание")
+                .releaseDate(LocalDate.of(2000, 1, 1))
+                .duration(90)
+                .mpa(new Mpa(1, null))
+                .build();
+        for (int genreId : genreIds) {
+            film.getGenres().add(new Genre(genreId, null));
+        }
+        return filmService.create(film);
+    }
+
+    private JsonNode patchFilm(int id, String body, ResultMatcher expectedStatus) throws Exception {
+        String response = mockMvc.perform(patch("/films/{id}", id)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(body))
+                .andExpect(expectedStatus)
+                .andReturn().getResponse().getContentAsString(StandardCharsets.UTF_8);
+        return objectMapper.readTree(response);
+    }
+
+    private static List<Integer> genreIds(JsonNode film) {
+        List<Integer> ids = new ArrayList<>();
+        film.get("genres").forEach(genre -> ids.add(genre.get("id").asInt()));
+        return ids;
+    }
+
+    /**
+     * Строки {@code film_genres} фильма: жанр → id строки, в порядке вставки.
+     */
+    private Map<Integer, Integer> genreRows(int filmId) {
+        Map<Integer, Integer> rows = new LinkedHashMap<>();
+        jdbcTemplate.query("SELECT id, genre_id FROM film_genres WHERE film_id = ? ORDER BY id",
+                rs -> {
+                    rows.put(rs.getInt("genre_id"), rs.getInt("id"));
+                }, filmId);
+        return rows;
+    }
+
+    private static String film(String name) {
+        return "{\"name\": \"" + name + "\", \"description\": \"Описание\", \"releaseDate\": \"2000-01-01\", " +
+                "\"duration\": 90, \"mpa\": {\"id\": 1}}";
+    }
+}
@@ -0,0 +1,115 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.web.servlet.MockMvc;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.service.UserService;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Запросы к {@code /users} через MockMvc над отдельной H2 в памяти.
+ */
+@SpringBootTest(properties = "spring.datasource.url=jdbc:h2:mem:controllers;DB_CLOSE_DELAY=-1")
+@AutoConfigureMockMvc
+class UserControllerTest {
+    @Autowired
+    private MockMvc mockMvc;
+    @Autowired
+    private ObjectMapper objectMapper;
+    @Autowired
+    private UserService userService;
+
+    @Test
+    void friendPagesFollowCursorToLastPage() throws Exception {
+        User user = userService.create(user());
+        List<Integer> friendIds = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            User friend = userService.create(user());
+            userService.addFriend(user.getId(), friend.getId());
+            friendIds.add(friend.getId());
+        }
+
+        List<Integer> seen = new ArrayList<>();
+        List<Integer> pageSizes = new ArrayList<>();
+        String cursor = null;
+        do {
+            MockHttpServletResponse response = mockMvc.perform(get("/users/{id}/friends", user.getId())
+                            .param("limit", "2")
+                            .param("after", cursor == null ? "" : cursor))
+                    .andExpect(status().isOk())
+                    .andReturn().getResponse();
+            JsonNode page = objectMapper.readTree(response.getContentAsString(StandardCharsets.UTF_8));
+            page.forEach(friend -> seen.add(friend.get("id").asInt()));
+            pageSizes.add(page.size());
+            cursor = response.getHeader(FilmController.NEXT_CURSOR_HEADER);
+        } while (cursor != null);
+
+        assertEquals(friendIds, seen);
+        assertEquals(List.of(2, 2, 1), pageSizes);
+    }
+
+    @Test
+    void exactlyFullLastPageHasNoCursor() throws Exception {
+        User user = userService.create(user());
+        for (int i = 0; i < 3; i++) {
+            userService.addFriend(user.getId(), userService.create(user()).getId());
+        }
+
+        MockHttpServletResponse response = mockMvc.perform(get("/users/{id}/friends", user.getId())
+                        .param("limit", "3"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse();
+
+        assertEquals(3, objectMapper.readTree(response.getContentAsString(StandardCharsets.UTF_8)).size());
+        assertNull(response.getHeader(FilmController.NEXT_CURSOR_HEADER));
+    }
+
+    @Test
+    void invalidCursorIsBadRequest() throws Exception {
+        User user = userService.create(user());
+        for (String cursor : List.of("%%%", "не-курсор", "99999999999", "aWQ6YWJj")) {
+            mockMvc.perform(get("/users").param("limit", "10").param("after", cursor))
+                    .andExpect(status().isBadRequest());
+            mockMvc.perform(get("/users/{id}/friends", user.getId()).param("limit", "10").param("after", cursor))
+                    .andExpect(status().isBadRequest());
+            mockMvc.perform(get("/films").param("limit", "10").param("after", cursor))
+                    .andExpect(status().isBadRequest());
+        }
+    }
+
+    @Test
+    void recommendationsCountOutsideRangeIsBadRequest() throws Exception {
+        User user = userService.create(user());
+        for (String count : List.of("-1", "0", "1001")) {
+            mockMvc.perform(get("/users/{id}/recommendations", user.getId()).param("count", count))
+                    .andExpect(status().isBadRequest());
+        }
+        mockMvc.perform(get("/users/{id}/recommendations", user.getId()).param("count", "5"))
+                .andExpect(status().isOk());
+    }
+
+    private static User user() {
+        String login = "u" + UUID.randomUUID().toString().substring(0, 8);
+        return User.builder()
+                .email(login + "@mail.ru")
+                .login(login)
+                .birthday(LocalDate.of(1990, 1, 1))
+                .build();
+    }
+}
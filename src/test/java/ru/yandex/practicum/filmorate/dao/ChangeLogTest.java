@@ -0,0 +1,152 @@
+package ru.yandex.practicum.filmorate.dao;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.distribution.ValueAtPercentile;
+import org.h2.tools.Server;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import ru.yandex.practicum.filmorate.FilmorateApplication;
+import ru.yandex.practicum.filmorate.config.ReferenceDataEndpoint;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmPatch;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.Mpa;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.service.FilmService;
+import ru.yandex.practicum.filmorate.service.UserService;
+import ru.yandex.practicum.filmorate.storage.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.GenreStorage;
+import ru.yandex.practicum.filmorate.storage.LikeStorage;
+
+import java.sql.SQLException;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+import static org.awaitility.Awaitility.await;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Два контекста приложения, как два узла, над общей H2, поднятой TCP-сервером: изменения, сделанные через
+ * сервисы одного, должны дойти до кэшей в памяти другого через журнал изменений, а таймер
+ * {@code filmorate.changelog.lag} принимающего узла — показать задержку в пределах ожидания.
+ */
+class ChangeLogTest {
+    private static final Duration PROPAGATION_TIMEOUT = Duration.ofSeconds(5);
+    private static final int YEAR = 1896;
+
+    private static Server server;
+    private static ConfigurableApplicationContext writer;
+    private static ConfigurableApplicationContext reader;
+
+    @BeforeAll
+    static void start() throws SQLException {
+        server = Server.createTcpServer("-tcpPort", "0", "-ifNotExists").start();
+        writer = node();
+        reader = node();
+    }
+
+    @AfterAll
+    static void stop() {
+        reader.close();
+        writer.close();
+        server.stop();
+    }
+
+    @Test
+    void changesReachOtherNode() {
+        UserService users = writer.getBean(UserService.class);
+        FilmService films = writer.getBean(FilmService.class);
+        FilmService readerFilms = reader.getBean(FilmService.class);
+        FilmStorage readerFilmStorage = reader.getBean(FilmStorage.class);
+        LikeStorage readerLikes = reader.getBean(LikeStorage.class);
+        FriendGraphIndex readerFriends = reader.getBean(FriendGraphIndex.class);
+
+        User first = users.create(user("first"));
+        User second = users.create(user("second"));
+        Film unliked = films.create(film("Oldfilm"));
+        Film liked = films.create(film("Oldfilm"));
+        await().atMost(PROPAGATION_TIMEOUT).untilAsserted(() -> assertArrayEquals(
+                new int[]{unliked.getId(), liked.getId()},
+                readerFilmStorage.searchFilmIds("Oldfilm", true, false, 10)));
+        String tag = readerFilms.filmTag(liked.getId());
+
+        films.addLike(liked.getId(), first.getId());
+        users.addFriend(first.getId(), second.getId());
+        FilmPatch patch = new FilmPatch();
+        patch.setName("Zanzibar");
+        films.patch(liked.getId(), patch);
+
+        await().atMost(PROPAGATION_TIMEOUT).untilAsserted(() -> {
+            assertEquals(List.of(liked.getId(), unliked.getId()),
+                    readerLikes.findPopularFilmIds(10, null, null, YEAR));
+            assertArrayEquals(new int[]{second.getId()}, readerFriends.findFriends(first.getId()));
+            assertNotEquals(tag, readerFilms.filmTag(liked.getId()));
+            assertArrayEquals(new int[]{liked.getId()},
+                    readerFilmStorage.searchFilmIds("Zanzibar", true, false, 10));
+        });
+
+        Timer lag = reader.getBean(MeterRegistry.class).get("filmorate.changelog.lag").timer();
+        assertTrue(lag.count() >= 7, "применено изменений: " + lag.count());
+        double max = lag.max(TimeUnit.MILLISECONDS);
+        assertTrue(max > 0 && max < PROPAGATION_TIMEOUT.toMillis(), "максимальная задержка " + max + " мс");
+        ValueAtPercentile[] percentiles = lag.takeSnapshot().percentileValues();
+        assertEquals(2, percentiles.length);
+        double median = percentiles[0].value(TimeUnit.MILLISECONDS);
+        double p99 = percentiles[1].value(TimeUnit.MILLISECONDS);
+        assertTrue(median > 0 && median <= p99, "p50 " + median + " мс, p99 " + p99 + " мс");
+        assertTrue(p99 < PROPAGATION_TIMEOUT.toMillis(), "p99 " + p99 + " мс");
+    }
+
+    @Test
+    void referenceDataReloadReachesOtherNode() {
+        GenreStorage readerGenres = reader.getBean(GenreStorage.class);
+        FilmService readerFilms = reader.getBean(FilmService.class);
+        String tag = readerFilms.referenceDataTag();
+
+        writer.getBean(JdbcTemplate.class).update("UPDATE genres SET name = 'Документалистика' WHERE genre_id = 5");
+        writer.getBean(ReferenceDataEndpoint.class).reload();
+
+        await().atMost(PROPAGATION_TIMEOUT).untilAsserted(() -> {
+            assertEquals(Optional.of(new Genre(5, "Документалистика")), readerGenres.findGenreById(5));
+            assertNotEquals(tag, readerFilms.referenceDataTag());
+        });
+    }
+
+    private static ConfigurableApplicationContext node() {
+        return new SpringApplicationBuilder(FilmorateApplication.class)
+                .web(WebApplicationType.NONE)
+                .run("--spring.datasource.url=jdbc:h2:tcp://localhost:" + server.getPort()
+                                + "/mem:change-log;DB_CLOSE_DELAY=-1",
+                        "--filmorate.change-log.poll-interval-ms=20");
+    }
+
+    private static User user(String login) {
+        return User.builder()
+                .email(login + "@mail.ru")
+                .login(login)
+                .birthday(LocalDate.of(1990, 1, 1))
+                .build();
+    }
+
+    private static Film film(String name) {
+        return Film.builder()
+                .name(name)
+                .description("Фильм для проверки журнала изменений")
+                .releaseDate(LocalDate.of(YEAR, 1, 1))
+                .duration(60)
+                .mpa(new Mpa(1, null))
+                .build();
+    }
+}
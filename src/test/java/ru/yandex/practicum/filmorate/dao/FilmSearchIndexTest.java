@@ -0,0 +1,163 @@
+package ru.yandex.practicum.filmorate.dao;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Mpa;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Индекс без БД: фильмы добавляются через {@link FilmSearchIndex#index}, лайки — через рейтинг популярности.
+ */
+class FilmSearchIndexTest {
+    private FilmPopularityIndex popularity;
+    private FilmSearchIndex search;
+
+    @BeforeEach
+    void setUp() {
+        popularity = new FilmPopularityIndex(null, new SimpleMeterRegistry());
+        search = new FilmSearchIndex(null, popularity);
+    }
+
+    @Test
+    void tokenizeFoldsCaseAndYo() {
+        assertEquals(List.of("елки", "палки", "зима"), List.copyOf(FilmSearchIndex.tokenize("ЁЛКИ-Палки, зИмА!")));
+        assertEquals(List.of("the", "matrix", "1999"), List.copyOf(FilmSearchIndex.tokenize("The MATRIX (1999)")));
+    }
+
+    @Test
+    void tokenizeSplitsOnPunctuationAndDropsShortWords() {
+        assertEquals(List.of("кто", "там", "ну", "да"),
+                List.copyOf(FilmSearchIndex.tokenize("«Кто там?» — ну... да; я/а")));
+        assertEquals(Set.of("кино"), FilmSearchIndex.tokenize("кино Кино КИНО"));
+        assertEquals(Set.of(), FilmSearchIndex.tokenize(null));
+        assertEquals(Set.of(), FilmSearchIndex.tokenize(" , . !"));
+    }
+
+    @Test
+    void findsByWordInAnyCase() {
+        add(1, "Ёжик в тумане", "Мультфильм");
+        add(2, "Туманность Андромеды", "Фантастика");
+
+        assertArrayEquals(new int[]{1}, search.search("ЕЖИК", true, true, 10));
+        assertArrayEquals(new int[]{1}, search.search("ёжик", true, true, 10));
+    }
+
+    @Test
+    void expandsPrefixesFromThreeLetters() {
+        add(1, "Комедия положений", "Смешно");
+        add(2, "Комедии Гайдая", "Классика");
+        add(3, "Космос", "Про космонавтов");
+
+        assertArrayEquals(new int[]{1, 2}, search.search("комед", true, true, 10));
+        assertArrayEquals(new int[0], search.search("ко", true, true, 10));
+        assertArrayEquals(new int[]{3}, search.search("космо", true, true, 10));
+    }
+
+    @Test
+    void requiresAllWords() {
+        add(1, "Красная шапочка", "Сказка");
+        add(2, "Красная палатка", "Экспедиция");
+
+        assertArrayEquals(new int[]{1}, search.search("красная сказка", true, true, 10));
+        assertArrayEquals(new int[0], search.search("красная экспедиция ночь", true, true, 10));
+    }
+
+    @Test
+    void searchesOnlyRequestedFields() {
+        add(1, "Гроза", "Драма по пьесе");
+        add(2, "Драма", "Гроза над городом");
+
+        assertArrayEquals(new int[]{1}, search.search("гроза", true, false, 10));
+        assertArrayEquals(new int[]{2}, search.search("гроза", false, true, 10));
+        assertArrayEquals(new int[0], search.search("гроза", false, false, 10));
+    }
+
+    @Test
+    void nameMatchOutranksDescriptionMatch() {
+        add(1, "Ночь", "Про пирата");
+        add(2, "Пират", "Ночь");
+        addFiller(3, 20);
+
+        assertArrayEquals(new int[]{2, 1}, search.search("пират", true, true, 10));
+    }
+
+    @Test
+    void exactWordOutranksPrefix() {
+        add(1, "Домовой", "Фильм");
+        add(2, "Дом", "Фильм");
+        addFiller(3, 20);
+
+        assertArrayEquals(new int[]{2, 1}, search.search("дом", true, true, 10));
+        assertArrayEquals(new int[]{1}, search.search("домо", true, true, 10));
+    }
+
+    @Test
+    void likesBreakTiesThenSmallerId() {
+        add(1, "Дождь", "Фильм");
+        add(2, "Дождь", "Фильм");
+        add(3, "Дождь", "Фильм");
+        addFiller(4, 40);
+        like(3, 5);
+
+        assertArrayEquals(new int[]{3, 1, 2}, search.search("дождь", true, true, 10));
+        assertArrayEquals(new int[]{3, 1}, search.search("дождь", true, true, 2));
+    }
+
+    @Test
+    void broadQueryRankedByLikesScan() {
+        add(1, "Лето", "Фильм");
+        add(2, "Лето", "Фильм");
+        add(3, "Лето", "Фильм");
+        add(4, "Лето в городе", "Фильм про лето");
+        like(2, 3);
+        like(3, 1);
+
+        assertArrayEquals(new int[]{2, 3, 4, 1}, search.search("лето", true, true, 10));
+        assertArrayEquals(new int[]{2}, search.search("лето", true, true, 1));
+    }
+
+    @Test
+    void reindexReplacesOldWords() {
+        add(1, "Старое название", "Описание");
+        add(1, "Новое название", "Описание");
+
+        assertArrayEquals(new int[0], search.search("старое", true, true, 10));
+        assertArrayEquals(new int[]{1}, search.search("новое", true, true, 10));
+    }
+
+    private void add(int filmId, String name, String description) {
+        Film film = Film.builder()
+                .id(filmId)
+                .name(name)
+                .description(description)
+                .releaseDate(LocalDate.of(2000, 1, 1))
+                .mpa(new Mpa(1, null))
+                .build();
+        popularity.index(() -> List.of(film));
+        search.index(filmId, name, description);
+    }
+
+    /**
+     * Фильмы без общих слов с запросами: при малом числе найденных фильмов ранжирование идёт
+     * по релевантности, а не обходом рейтинга популярности.
+     */
+    private void addFiller(int fromId, int count) {
+        for (int filmId = fromId; filmId < fromId + count; filmId++) {
+            add(filmId, "Заполнитель " + filmId, "Лишний");
+        }
+    }
+
+    private void like(int filmId, int likes) {
+        for (int i = 0; i < likes; i++) {
+            popularity.addLike(filmId, () -> 1);
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package ru.yandex.practicum.filmorate.dao;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.storage.ContentVersions;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Граф без БД: запись в БД подменена функцией, возвращающей число изменённых строк.
+ */
+class FriendGraphIndexTest {
+    private final List<int[]> friendsAtVersionChange = new ArrayList<>();
+    private FriendGraphIndex graph;
+
+    @BeforeEach
+    void setUp() {
+        ContentVersions versions = new ContentVersions() {
+            @Override
+            public void friendsChanged() {
+                friendsAtVersionChange.add(graph.findFriends(1));
+                super.friendsChanged();
+            }
+        };
+        graph = new FriendGraphIndex(null, versions);
+    }
+
+    @Test
+    void friendsStaySorted() {
+        befriend(1, 30);
+        befriend(1, 10);
+        befriend(1, 20);
+
+        assertArrayEquals(new int[]{10, 20, 30}, graph.findFriends(1));
+        assertArrayEquals(new int[0], graph.findFriends(10));
+    }
+
+    @Test
+    void unchangedRowsLeaveGraphAsIs() {
+        befriend(1, 2);
+        graph.addFriend(1, 3, () -> 0);
+        graph.removeFriend(1, 2, () -> 0);
+
+        assertArrayEquals(new int[]{2}, graph.findFriends(1));
+    }
+
+    @Test
+    void removeDropsOnlyThatFriend() {
+        befriend(1, 2);
+        befriend(1, 3);
+        befriend(1, 4);
+
+        graph.removeFriend(1, 3, () -> 1);
+        assertArrayEquals(new int[]{2, 4}, graph.findFriends(1));
+
+        graph.removeFriend(1, 2, () -> 1);
+        graph.removeFriend(1, 4, () -> 1);
+        assertArrayEquals(new int[0], graph.findFriends(1));
+    }
+
+    @Test
+    void commonFriendsExcludeBothUsers() {
+        befriend(1, 2);
+        befriend(1, 3);
+        befriend(1, 5);
+        befriend(2, 1);
+        befriend(2, 3);
+        befriend(2, 4);
+        befriend(2, 5);
+
+        assertArrayEquals(new int[]{3, 5}, graph.findCommonFriends(1, 2));
+        assertArrayEquals(new int[0], graph.findCommonFriends(1, 99));
+    }
+
+    @Test
+    void suggestionsRankedByMutualFriendsThenId() {
+        befriend(1, 2);
+        befriend(1, 3);
+        befriend(1, 4);
+        befriend(2, 1);
+        befriend(2, 7);
+        befriend(2, 5);
+        befriend(3, 5);
+        befriend(3, 6);
+        befriend(4, 5);
+        befriend(4, 6);
+        befriend(4, 3);
+
+        assertArrayEquals(new int[]{5, 6, 7}, graph.findSuggestions(1, 10));
+        assertArrayEquals(new int[]{5, 6}, graph.findSuggestions(1, 2));
+    }
+
+    @Test
+    void suggestionsFollowFriendChanges() {
+        befriend(1, 2);
+        befriend(2, 3);
+        assertArrayEquals(new int[]{3}, graph.findSuggestions(1, 10));
+
+        befriend(2, 4);
+        assertArrayEquals(new int[]{3, 4}, graph.findSuggestions(1, 10));
+
+        befriend(1, 3);
+        assertArrayEquals(new int[]{4}, graph.findSuggestions(1, 10));
+
+        graph.removeFriend(1, 2, () -> 1);
+        assertEquals(0, graph.findSuggestions(1, 10).length);
+    }
+
+    @Test
+    void versionChangesAfterGraphUpdate() {
+        befriend(1, 2);
+        graph.addFriend(1, 3, () -> 0);
+        graph.removeFriend(1, 2, () -> 1);
+
+        assertEquals(2, friendsAtVersionChange.size(), "без изменённых строк версия не меняется");
+        assertArrayEquals(new int[]{2}, friendsAtVersionChange.get(0), "версия меняется после добавления в граф");
+        assertArrayEquals(new int[0], friendsAtVersionChange.get(1), "версия меняется после удаления из графа");
+    }
+
+    private void befriend(int userId, int friendId) {
+        graph.addFriend(userId, friendId, () -> 1);
+    }
+}
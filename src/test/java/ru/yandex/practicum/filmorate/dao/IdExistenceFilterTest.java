@@ -0,0 +1,125 @@
+package ru.yandex.practicum.filmorate.dao;
+
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Фильтр над отдельной H2 в памяти; {@link CountingJdbcTemplate} следит, что проверки не обращаются к БД.
+ */
+class IdExistenceFilterTest {
+    private CountingJdbcTemplate jdbcTemplate;
+    private TransactionTemplate transactionTemplate;
+    private IdExistenceFilter filter;
+
+    @BeforeEach
+    void setUp() {
+        DataSource dataSource = new DriverManagerDataSource(
+                "jdbc:h2:mem:id-filter-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1", "sa", "password");
+        Flyway.configure().dataSource(dataSource).load().migrate();
+        jdbcTemplate = new CountingJdbcTemplate(dataSource);
+        transactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+        insertUser(1);
+        insertUser(2);
+        insertFilm(1);
+        filter = new IdExistenceFilter(jdbcTemplate);
+        filter.load();
+    }
+
+    @Test
+    void loadedIdsNeedNoQuery() {
+        assertTrue(filter.userExists(1));
+        assertTrue(filter.userExists(2));
+        assertTrue(filter.filmExists(1));
+        assertEquals(0, jdbcTemplate.counts);
+    }
+
+    @Test
+    void negativeIdRejectedWithoutQuery() {
+        assertFalse(filter.userExists(-1));
+        assertFalse(filter.filmExists(-1));
+        assertEquals(0, jdbcTemplate.counts);
+    }
+
+    @Test
+    void clearBitRejectedWithoutQuery() {
+        assertFalse(filter.filmExists(2));
+        assertFalse(filter.userExists(Integer.MAX_VALUE));
+        assertEquals(0, jdbcTemplate.counts);
+
+        insertFilm(2);
+        assertFalse(filter.filmExists(2), "строка, добавленная в обход хранилищ, не видна до загрузки");
+        filter.load();
+        assertTrue(filter.filmExists(2));
+        assertEquals(0, jdbcTemplate.counts);
+    }
+
+    @Test
+    void addOutsideTransactionSetsBit() {
+        filter.addUser(3);
+        filter.addFilm(3);
+
+        assertTrue(filter.userExists(3));
+        assertTrue(filter.filmExists(3));
+        assertEquals(0, jdbcTemplate.counts);
+    }
+
+    @Test
+    void addInsideTransactionWaitsForCommit() {
+        transactionTemplate.executeWithoutResult(status -> {
+            insertFilm(5);
+            filter.addFilm(5);
+            assertFalse(filter.filmExists(5), "до коммита бит не выставлен");
+        });
+
+        assertTrue(filter.filmExists(5));
+        assertEquals(0, jdbcTemplate.counts);
+    }
+
+    @Test
+    void rolledBackAddLeavesBitClear() {
+        transactionTemplate.executeWithoutResult(status -> {
+            insertUser(7);
+            filter.addUser(7);
+            status.setRollbackOnly();
+        });
+
+        assertFalse(filter.userExists(7));
+        assertEquals(0, jdbcTemplate.counts);
+    }
+
+    private void insertUser(int id) {
+        jdbcTemplate.update("INSERT INTO users (user_id, email, login, birthday) VALUES (?, ?, ?, '1990-01-01')",
+                id, "user" + id + "@mail.ru", "user" + id);
+    }
+
+    private void insertFilm(int id) {
+        jdbcTemplate.update("INSERT INTO films (film_id, name, description, releaseDate, duration, rating_id) " +
+                "VALUES (?, ?, 'Описание', '2000-01-01', 90, 1)", id, "Фильм " + id);
+    }
+
+    private static final class CountingJdbcTemplate extends JdbcTemplate {
+        private int counts;
+
+        private CountingJdbcTemplate(DataSource dataSource) {
+            super(dataSource);
+        }
+
+        @Override
+        public <T> T queryForObject(String sql, Class<T> requiredType, Object... args) {
+            counts++;
+            return super.queryForObject(sql, requiredType, args);
+        }
+    }
+}
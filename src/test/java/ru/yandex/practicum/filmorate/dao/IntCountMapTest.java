@@ -0,0 +1,123 @@
+package ru.yandex.practicum.filmorate.dao;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class IntCountMapTest {
+
+    @Test
+    void keepsCountsWhileGrowing() {
+        IntCountMap counts = new IntCountMap(2);
+        Map<Integer, Integer> expected = new HashMap<>();
+        Random random = new Random(7);
+        for (int i = 0; i < 10_000; i++) {
+            int key = 1 + random.nextInt(3_000);
+            counts.add(key, 1);
+            expected.merge(key, 1, Integer::sum);
+        }
+
+        assertEquals(expected.size(), counts.size());
+        expected.forEach((key, count) -> assertEquals(count, counts.get(key), "ключ " + key));
+        Map<Integer, Integer> visited = new HashMap<>();
+        counts.forEach(visited::put);
+        assertEquals(expected, visited);
+    }
+
+    @Test
+    void collidingKeysStayApart() {
+        IntCountMap counts = new IntCountMap();
+        for (int key = 1 << 16; key <= 64 << 16; key += 1 << 16) {
+            counts.add(key, key >>> 16);
+        }
+
+        assertEquals(64, counts.size());
+        for (int key = 1 << 16; key <= 64 << 16; key += 1 << 16) {
+            assertEquals(key >>> 16, counts.get(key));
+        }
+        assertEquals(0, counts.get(65 << 16));
+    }
+
+    @Test
+    void negativeDeltaDecrementsCount() {
+        IntCountMap counts = new IntCountMap();
+        counts.add(5, 3);
+        counts.add(5, -2);
+        counts.add(9, 1);
+        counts.add(9, -1);
+
+        assertEquals(1, counts.get(5));
+        assertEquals(0, counts.get(9));
+        assertEquals(2, counts.size());
+    }
+
+    @Test
+    void addAllMergesCounts() {
+        IntCountMap first = new IntCountMap();
+        first.add(1, 2);
+        first.add(2, 1);
+        IntCountMap second = new IntCountMap();
+        second.add(2, 4);
+        second.add(3, 1);
+
+        first.addAll(second);
+
+        assertEquals(3, first.size());
+        assertEquals(2, first.get(1));
+        assertEquals(5, first.get(2));
+        assertEquals(1, first.get(3));
+    }
+
+    @Test
+    void topKeysOrderedByCountThenSmallerKey() {
+        IntCountMap counts = new IntCountMap();
+        counts.add(40, 2);
+        counts.add(10, 5);
+        counts.add(30, 2);
+        counts.add(20, 7);
+        counts.add(50, 2);
+        counts.add(60, 1);
+
+        assertArrayEquals(new int[]{20, 10, 30, 40, 50, 60}, counts.topKeys(10));
+        assertArrayEquals(new int[]{20, 10, 30, 40}, counts.topKeys(4));
+        assertArrayEquals(new int[]{20}, counts.topKeys(1));
+    }
+
+    @Test
+    void topKeysMatchesFullSort() {
+        IntCountMap counts = new IntCountMap();
+        Random random = new Random(11);
+        for (int i = 0; i < 5_000; i++) {
+            counts.add(1 + random.nextInt(1_000), 1 + random.nextInt(3));
+        }
+        int[] all = counts.topKeys(Integer.MAX_VALUE);
+
+        assertEquals(counts.size(), all.length);
+        for (int i = 1; i < all.length; i++) {
+            int previous = counts.get(all[i - 1]);
+            int current = counts.get(all[i]);
+            boolean ordered = previous > current || (previous == current && all[i - 1] < all[i]);
+            assertTrue(ordered, "позиция " + i);
+        }
+        int[] top = counts.topKeys(25);
+        for (int i = 0; i < top.length; i++) {
+            assertEquals(all[i], top[i]);
+        }
+    }
+
+    @Test
+    void topKeysOfNonPositiveCountIsEmpty() {
+        IntCountMap counts = new IntCountMap();
+        counts.add(1, 1);
+
+        assertArrayEquals(new int[0], counts.topKeys(0));
+        assertArrayEquals(new int[0], counts.topKeys(-5));
+        assertArrayEquals(new int[0], new IntCountMap().topKeys(3));
+    }
+}
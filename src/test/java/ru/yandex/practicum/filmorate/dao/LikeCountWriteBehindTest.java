@@ -0,0 +1,97 @@
+package ru.yandex.practicum.filmorate.dao;
+
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.yandex.practicum.filmorate.storage.ContentVersions;
+
+import javax.sql.DataSource;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Два экземпляра над одной H2 в памяти изображают два узла: лайки пишутся в таблицу напрямую,
+ * а сбросу сообщается только id фильма и разница.
+ */
+class LikeCountWriteBehindTest {
+    private static final int FILM_ID = 1;
+
+    private JdbcTemplate jdbcTemplate;
+    private LikeCountWriteBehind node;
+    private LikeCountWriteBehind otherNode;
+
+    @BeforeEach
+    void setUp() {
+        DataSource dataSource = new DriverManagerDataSource(
+                "jdbc:h2:mem:like-counts-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1", "sa", "password");
+        Flyway.configure().dataSource(dataSource).load().migrate();
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        TransactionTemplate transactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+        for (int userId = 1; userId <= 3; userId++) {
+            jdbcTemplate.update("INSERT INTO users (user_id, email, login, birthday) VALUES (?, ?, ?, '1990-01-01')",
+                    userId, "user" + userId + "@mail.ru", "user" + userId);
+        }
+        jdbcTemplate.update("INSERT INTO films (film_id, name, description, releaseDate, duration, rating_id) " +
+                "VALUES (?, 'Фильм', 'Описание', '2000-01-01', 90, 1)", FILM_ID);
+        node = new LikeCountWriteBehind(jdbcTemplate, new ContentVersions(), transactionTemplate,
+                new ChangeLog(jdbcTemplate), 100);
+        otherNode = new LikeCountWriteBehind(jdbcTemplate, new ContentVersions(), transactionTemplate,
+                new ChangeLog(jdbcTemplate), 100);
+    }
+
+    @Test
+    void resyncOnOtherNodeDoesNotDoubleUnflushedLikes() {
+        like(1);
+        like(2);
+
+        otherNode.resync();
+        assertEquals(2, likeCount());
+        node.flush();
+
+        assertEquals(2, likeCount(), "несброшенные лайки не должны прибавиться к пересчитанному счётчику");
+    }
+
+    @Test
+    void flushWritesCountFromLikes() {
+        like(1);
+        like(2);
+        like(3);
+        unlike(2);
+
+        node.flush();
+        assertEquals(2, likeCount());
+        node.add(FILM_ID, 1);
+        node.flush();
+        assertEquals(2, likeCount(), "повторный сброс не меняет верный счётчик");
+    }
+
+    @Test
+    void netZeroChangeIsNotWritten() {
+        jdbcTemplate.update("UPDATE films SET like_count = 5 WHERE film_id = ?", FILM_ID);
+        node.add(FILM_ID, 1);
+        node.add(FILM_ID, -1);
+
+        node.flush();
+
+        assertEquals(5, likeCount());
+    }
+
+    private void like(int userId) {
+        jdbcTemplate.update("INSERT INTO likes (film_id, user_id) VALUES (?, ?)", FILM_ID, userId);
+        node.add(FILM_ID, 1);
+    }
+
+    private void unlike(int userId) {
+        jdbcTemplate.update("DELETE FROM likes WHERE film_id = ? AND user_id = ?", FILM_ID, userId);
+        node.add(FILM_ID, -1);
+    }
+
+    private int likeCount() {
+        return jdbcTemplate.queryForObject("SELECT like_count FROM films WHERE film_id = ?", Integer.class, FILM_ID);
+    }
+}
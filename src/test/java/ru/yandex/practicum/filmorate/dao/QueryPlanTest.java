@@ -0,0 +1,237 @@
+package ru.yandex.practicum.filmorate.dao;
+
+import org.junit.jupiter.api.DynamicTest;
+import org.junit.jupiter.api.TestFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import ru.yandex.practicum.filmorate.datagen.DataGenerator;
+import ru.yandex.practicum.filmorate.datagen.GeneratorSettings;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmPatch;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.Mpa;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.FriendStorage;
+import ru.yandex.practicum.filmorate.storage.GenreStorage;
+import ru.yandex.practicum.filmorate.storage.LikeStorage;
+import ru.yandex.practicum.filmorate.storage.UserStorage;
+
+import javax.sql.DataSource;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+/**
+ * Заполняет H2 данными, вызывает все методы хранилищ и индексов из пакета dao и проверяет
+ * план ({@code EXPLAIN}) каждого выполненного запроса: точечные запросы не должны полностью
+ * просматривать большие таблицы, а время вызова не должно превышать порог.
+ * Объём данных и пороги задаются системными свойствами {@code filmorate.plan.*}.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:query-plans;DB_CLOSE_DELAY=-1",
+        "filmorate.likes.flush-interval-ms=3600000",
+        "filmorate.recommendations.rebuild-interval-ms=3600000"
+})
+@Import(QueryPlanTest.Recording.class)
+class QueryPlanTest {
+    private static final int USERS = Integer.getInteger("filmorate.plan.users", 5_000);
+    private static final int FILMS = Integer.getInteger("filmorate.plan.films", 5_000);
+    private static final int LIKES_PER_USER = Integer.getInteger("filmorate.plan.likes-per-user", 20);
+    private static final int FRIENDS_PER_USER = Integer.getInteger("filmorate.plan.friends-per-user", 20);
+    private static final long POINT_CALL_MS = Long.getLong("filmorate.plan.point-ms", 250);
+    private static final long BULK_CALL_MS = Long.getLong("filmorate.plan.bulk-ms", 15_000);
+
+    private static final Set<String> LARGE_TABLES = Set.of("USERS", "FILMS", "LIKES", "FRIENDSHIP", "FILM_GENRES");
+    private static final Pattern SCAN = Pattern.compile(
+            "(?:FROM|JOIN|UPDATE)\\s+\"PUBLIC\"\\.\"(\\w+)\"(?:\\s+\"\\w+\")?\\s*/\\*\\s*(.*?)\\s*\\*/", Pattern.DOTALL);
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private DataSource dataSource;
+    @Autowired
+    private FilmStorage filmStorage;
+    @Autowired
+    private UserStorage userStorage;
+    @Autowired
+    private LikeStorage likeStorage;
+    @Autowired
+    private FriendStorage friendStorage;
+    @Autowired
+    private GenreStorage genreStorage;
+    @Autowired
+    private FilmPopularityIndex popularityIndex;
+    @Autowired
+    private FriendGraphIndex friendGraph;
+    @Autowired
+    private FilmSimilarityIndex similarityIndex;
+    @Autowired
+    private FilmSearchIndex searchIndex;
+    @Autowired
+    private LikeCountWriteBehind likeCounts;
+    @Autowired
+    private ReferenceDataRegistry referenceData;
+    @Autowired
+    private IdExistenceFilter existingIds;
+
+    private SqlRecordingDataSource recorder;
+
+    @TestConfiguration
+    static class Recording {
+        @Bean
+        static BeanPostProcessor sqlRecording() {
+            return new BeanPostProcessor() {
+                @Override
+                public Object postProcessAfterInitialization(Object bean, String beanName) {
+                    return bean instanceof DataSource dataSource && !(bean instanceof SqlRecordingDataSource)
+                            ? new SqlRecordingDataSource(dataSource) : bean;
+                }
+            };
+        }
+    }
+
+    @TestFactory
+    Stream<DynamicTest> queryPlans() throws SQLException {
+        recorder = dataSource.unwrap(SqlRecordingDataSource.class);
+        new DataGenerator(GeneratorSettings.builder()
+                .users(USERS)
+                .films(FILMS)
+                .likesPerUser(LIKES_PER_USER)
+                .friendsPerUser(FRIENDS_PER_USER)
+                .build())
+                .generate(dataSource);
+        jdbcTemplate.execute("ANALYZE");
+        Map<String, Runnable> pointCalls = new LinkedHashMap<>();
+        Map<String, Runnable> bulkCalls = new LinkedHashMap<>();
+        bulkCalls.put("ReferenceDataRegistry.reload", referenceData::reload);
+        bulkCalls.put("LikeCountWriteBehind.resync", likeCounts::resync);
+        bulkCalls.put("FilmPopularityIndex.seed", popularityIndex::seed);
+        bulkCalls.put("FilmPopularityIndex.reconcile", popularityIndex::reconcile);
+        bulkCalls.put("FriendGraphIndex.load", friendGraph::load);
+        bulkCalls.put("IdExistenceFilter.load", existingIds::load);
+        bulkCalls.put("FilmSimilarityIndex.rebuild", similarityIndex::rebuild);
+        bulkCalls.put("FilmSearchIndex.load", searchIndex::load);
+        bulkCalls.put("FilmStorage.findAllFilms", filmStorage::findAllFilms);
+        bulkCalls.put("FilmStorage.streamAllFilms", () -> filmStorage.streamAllFilms(film -> {
+        }));
+        bulkCalls.put("UserStorage.findAll", userStorage::findAll);
+
+        int filmId = FILMS / 2;
+        int userId = USERS / 2;
+        User user = userStorage.findUserById(userId).orElseThrow();
+        int newcomerId = userStorage.create(newUser()).getId();
+        Film film = filmStorage.findFilmById(filmId).orElseThrow();
+        FilmPatch patch = new FilmPatch();
+        patch.setDuration(film.getDuration());
+        pointCalls.put("FilmStorage.create", () -> filmStorage.create(newFilm()));
+        pointCalls.put("FilmStorage.createAll", () -> filmStorage.createAll(List.of(newFilm(), newFilm())));
+        pointCalls.put("FilmStorage.update", () -> filmStorage.update(film));
+        pointCalls.put("FilmStorage.patch", () -> filmStorage.patch(filmId, patch));
+        pointCalls.put("FilmStorage.findFilmById", () -> filmStorage.findFilmById(filmId));
+        pointCalls.put("FilmStorage.existsById", () -> filmStorage.existsById(filmId));
+        pointCalls.put("FilmStorage.findFilmsAfter", () -> filmStorage.findFilmsAfter(filmId, 100));
+        pointCalls.put("FilmStorage.findFilmsByIds", () -> filmStorage.findFilmsByIds(List.of(1, filmId, FILMS)));
+        pointCalls.put("FilmStorage.searchFilmIds", () -> filmStorage.searchFilmIds("film", true, true, 10));
+        pointCalls.put("UserStorage.create", () -> userStorage.create(newUser()));
+        pointCalls.put("UserStorage.update", () -> userStorage.update(user));
+        pointCalls.put("UserStorage.findUserById", () -> userStorage.findUserById(userId));
+        pointCalls.put("UserStorage.existsById", () -> userStorage.existsById(userId));
+        pointCalls.put("UserStorage.findUsersAfter", () -> userStorage.findUsersAfter(userId, 100));
+        pointCalls.put("UserStorage.findUsersByIds", () -> userStorage.findUsersByIds(new int[]{1, userId, USERS}));
+        pointCalls.put("GenreStorage.findAllGenresByFilm",
+                () -> genreStorage.findAllGenresByFilm(filmStorage.findFilmsAfter(filmId, 100)));
+        pointCalls.put("LikeStorage.addLike", () -> likeStorage.addLike(filmId, newcomerId));
+        pointCalls.put("LikeStorage.removeLike", () -> likeStorage.removeLike(filmId, newcomerId));
+        pointCalls.put("LikeCountWriteBehind.flush", () -> {
+            likeCounts.add(filmId, 1);
+            likeCounts.add(filmId + 1, -1);
+            likeCounts.flush();
+        });
+        pointCalls.put("LikeStorage.findPopularFilmIds", () -> likeStorage.findPopularFilmIds(10));
+        pointCalls.put("LikeStorage.findRecommendedFilmIds", () -> likeStorage.findRecommendedFilmIds(userId, 10));
+        pointCalls.put("FriendStorage.addFriend", () -> friendStorage.addFriend(newcomerId, userId));
+        pointCalls.put("FriendStorage.removeFriend", () -> friendStorage.removeFriend(newcomerId, userId));
+        pointCalls.put("FriendStorage.findAllFriends", () -> friendStorage.findAllFriends(userId));
+        pointCalls.put("FriendStorage.findFriendsAfter", () -> friendStorage.findFriendsAfter(userId, 0, 10));
+        pointCalls.put("FriendStorage.findCommonFriends", () -> friendStorage.findCommonFriends(userId, userId + 1));
+        pointCalls.put("FriendStorage.findSuggestions", () -> friendStorage.findSuggestions(userId, 10));
+
+        List<DynamicTest> tests = new ArrayList<>();
+        bulkCalls.forEach((name, call) -> tests.add(timed(name, true, call)));
+        pointCalls.forEach((name, call) -> tests.add(timed(name, false, call)));
+        for (SqlRecordingDataSource.RecordedStatement statement : recorder.statements()) {
+            tests.add(DynamicTest.dynamicTest("plan " + statement.call() + ": " + statement.sql(),
+                    () -> checkPlan(statement)));
+        }
+        return tests.stream();
+    }
+
+    private DynamicTest timed(String name, boolean bulk, Runnable call) {
+        long elapsed = recorder.record(name, bulk, call);
+        long limit = bulk ? BULK_CALL_MS : POINT_CALL_MS;
+        return DynamicTest.dynamicTest("time " + name, () -> assertTrue(elapsed <= limit,
+                name + " выполнялся " + elapsed + " мс, порог " + limit + " мс"));
+    }
+
+    private void checkPlan(SqlRecordingDataSource.RecordedStatement statement) {
+        String plan = String.join("\n", jdbcTemplate.queryForList("EXPLAIN " + statement.sql(), String.class,
+                statement.parameters().toArray()));
+        if (statement.bulk()) {
+            return;
+        }
+        boolean topN = plan.contains("FETCH FIRST");
+        boolean indexSorted = plan.contains("/* index sorted */");
+        Matcher matcher = SCAN.matcher(plan);
+        while (matcher.find()) {
+            String table = matcher.group(1);
+            String access = matcher.group(2);
+            if (!LARGE_TABLES.contains(table)) {
+                continue;
+            }
+            boolean fullScan = access.endsWith("tableScan") || !access.contains(":");
+            if (fullScan && !(topN && indexSorted)) {
+                fail("Полный просмотр таблицы " + table + " в " + statement.call() + ":\n" + plan);
+            }
+            if (topN && !indexSorted) {
+                fail("Сортировка всей выборки из " + table + " ради LIMIT в " + statement.call() + ":\n" + plan);
+            }
+        }
+    }
+
+    private static Film newFilm() {
+        Film film = Film.builder()
+                .name("Новый фильм")
+                .description("Описание")
+                .releaseDate(LocalDate.of(2000, 1, 1))
+                .duration(100)
+                .mpa(new Mpa(1, null))
+                .build();
+        film.getGenres().add(new Genre(1, null));
+        return film;
+    }
+
+    private static User newUser() {
+        return User.builder()
+                .email("new@mail.ru")
+                .login("new")
+                .name("New")
+                .birthday(LocalDate.of(1990, 1, 1))
+                .build();
+    }
+}
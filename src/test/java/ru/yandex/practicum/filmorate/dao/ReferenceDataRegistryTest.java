@@ -0,0 +1,66 @@
+package ru.yandex.practicum.filmorate.dao;
+
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.Mpa;
+import ru.yandex.practicum.filmorate.storage.ContentVersions;
+
+import javax.sql.DataSource;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+/**
+ * Справочники над отдельной H2 в памяти, заполненной миграциями; строки меняются в обход приложения.
+ */
+class ReferenceDataRegistryTest {
+    private JdbcTemplate jdbcTemplate;
+    private ContentVersions versions;
+    private ReferenceDataRegistry registry;
+
+    @BeforeEach
+    void setUp() {
+        DataSource dataSource = new DriverManagerDataSource(
+                "jdbc:h2:mem:reference-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1", "sa", "password");
+        Flyway.configure().dataSource(dataSource).load().migrate();
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        versions = new ContentVersions();
+        registry = new ReferenceDataRegistry(jdbcTemplate, versions);
+        registry.reload();
+    }
+
+    @Test
+    void changedRowsVisibleOnlyAfterReload() {
+        String tag = versions.referenceDataTag();
+        jdbcTemplate.update("UPDATE genres SET name = 'Трагикомедия' WHERE genre_id = 1");
+        jdbcTemplate.update("INSERT INTO mpa_rating (rating_id, name) VALUES (6, 'NR')");
+
+        assertEquals(Optional.of(new Genre(1, "Комедия")), registry.findGenreById(1));
+        assertEquals(Optional.empty(), registry.findMpaById(6));
+        assertEquals(tag, versions.referenceDataTag());
+
+        registry.reload();
+
+        assertEquals(Optional.of(new Genre(1, "Трагикомедия")), registry.findGenreById(1));
+        assertEquals(new Genre(1, "Трагикомедия"), registry.findAllGenres().get(0));
+        assertEquals(Optional.of(new Mpa(6, "NR")), registry.findMpaById(6));
+        assertEquals(6, registry.findAllMpa().size());
+        assertNotEquals(tag, versions.referenceDataTag(), "после перезагрузки меняется ETag справочников");
+    }
+
+    @Test
+    void deletedRowDisappearsAfterReload() {
+        jdbcTemplate.update("DELETE FROM genres WHERE genre_id = 6");
+
+        registry.reload();
+
+        assertEquals(Optional.empty(), registry.findGenreById(6));
+        assertEquals(5, registry.findAllGenres().size());
+    }
+}
@@ -0,0 +1,113 @@
+package ru.yandex.practicum.filmorate.dao;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Запоминает SQL и параметры первого выполнения каждого запроса, сделанного внутри {@link #record}.
+ * Запросы из других потоков (планировщик) не записываются.
+ */
+class SqlRecordingDataSource extends DelegatingDataSource {
+    private static final ThreadLocal<String> CURRENT_CALL = new ThreadLocal<>();
+
+    private final Map<String, RecordedStatement> statements = Collections.synchronizedMap(new LinkedHashMap<>());
+
+    SqlRecordingDataSource(DataSource target) {
+        super(target);
+    }
+
+    record RecordedStatement(String call, boolean bulk, String sql, List<Object> parameters) {
+    }
+
+    /**
+     * Выполняет вызов, записывая его запросы, и возвращает время выполнения в миллисекундах.
+     */
+    long record(String call, boolean bulk, Runnable action) {
+        CURRENT_CALL.set((bulk ? "bulk:" : "") + call);
+        long start = System.nanoTime();
+        try {
+            action.run();
+            return (System.nanoTime() - start) / 1_000_000;
+        } finally {
+            CURRENT_CALL.remove();
+        }
+    }
+
+    List<RecordedStatement> statements() {
+        synchronized (statements) {
+            return new ArrayList<>(statements.values());
+        }
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return wrap(super.getConnection());
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return wrap(super.getConnection(username, password));
+    }
+
+    private Connection wrap(Connection connection) {
+        return (Connection) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{Connection.class},
+                (proxy, method, args) -> {
+                    Object result = invoke(connection, method, args);
+                    if (result instanceof PreparedStatement statement && args != null && args[0] instanceof String sql) {
+                        return wrap(statement, sql);
+                    }
+                    if (result instanceof Statement statement && !(result instanceof PreparedStatement)) {
+                        return wrap(statement, null);
+                    }
+                    return result;
+                });
+    }
+
+    private Statement wrap(Statement statement, String preparedSql) {
+        Class<?> type = preparedSql != null ? PreparedStatement.class : Statement.class;
+        Map<Integer, Object> parameters = new TreeMap<>();
+        return (Statement) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{type},
+                (proxy, method, args) -> {
+                    String name = method.getName();
+                    if (name.startsWith("set") && args != null && args.length >= 2 && args[0] instanceof Integer index) {
+                        parameters.put(index, name.equals("setNull") ? null : args[1]);
+                    } else if (name.startsWith("execute") || name.equals("addBatch")) {
+                        String sql = preparedSql != null ? preparedSql
+                                : args != null && args.length > 0 && args[0] instanceof String text ? text : null;
+                        remember(sql, new ArrayList<>(parameters.values()));
+                    }
+                    return invoke(statement, method, args);
+                });
+    }
+
+    private void remember(String sql, List<Object> parameters) {
+        String call = CURRENT_CALL.get();
+        if (call == null || sql == null) {
+            return;
+        }
+        boolean bulk = call.startsWith("bulk:");
+        statements.putIfAbsent(sql, new RecordedStatement(bulk ? call.substring(5) : call, bulk, sql, parameters));
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+}
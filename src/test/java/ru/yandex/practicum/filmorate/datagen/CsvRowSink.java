@@ -0,0 +1,115 @@
+package ru.yandex.practicum.filmorate.datagen;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Пишет по CSV-файлу на таблицу и скрипт {@code load.sql}, который загружает их через H2 {@code CSVREAD}:
+ * {@code RUNSCRIPT FROM '<каталог>/load.sql'}. Скрипт рассчитан на пустые таблицы с заполненными справочниками.
+ */
+final class CsvRowSink implements RowSink {
+    private final Path directory;
+    private final Map<String, Writer> writers = new LinkedHashMap<>();
+
+    CsvRowSink(Path directory) {
+        this.directory = directory.toAbsolutePath();
+        try {
+            Files.createDirectories(this.directory);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public void user(int id, String email, String login, String name, LocalDate birthday) {
+        write("users", "user_id,email,login,name,birthday",
+                id + "," + email + "," + login + "," + name + "," + birthday);
+    }
+
+    @Override
+    public void film(int id, String name, String description, LocalDate releaseDate, int duration, int ratingId) {
+        write("films", "film_id,name,description,releaseDate,duration,rating_id",
+                id + "," + name + "," + description + "," + releaseDate + "," + duration + "," + ratingId);
+    }
+
+    @Override
+    public void filmGenre(int filmId, int genreId) {
+        write("film_genres", "film_id,genre_id", filmId + "," + genreId);
+    }
+
+    @Override
+    public void like(int filmId, int userId) {
+        write("likes", "film_id,user_id", filmId + "," + userId);
+    }
+
+    @Override
+    public void friendship(int userId, int friendId) {
+        write("friendship", "user_id,friend_id", userId + "," + friendId);
+    }
+
+    @Override
+    public void likeCount(int filmId, int count) {
+        write("like_counts", "film_id,like_count", filmId + "," + count);
+    }
+
+    @Override
+    public void finish(int lastUserId, int lastFilmId) {
+        StringBuilder script = new StringBuilder();
+        append(script, "INSERT INTO users (user_id, email, login, name, birthday)", "users");
+        append(script, "INSERT INTO films (film_id, name, description, releaseDate, duration, rating_id)", "films");
+        append(script, "INSERT INTO film_genres (film_id, genre_id)", "film_genres");
+        append(script, "INSERT INTO likes (film_id, user_id)", "likes");
+        append(script, "INSERT INTO friendship (user_id, friend_id)", "friendship");
+        append(script, "MERGE INTO films (film_id, like_count) KEY (film_id)", "like_counts");
+        script.append("ALTER TABLE users ALTER COLUMN user_id RESTART WITH ").append(lastUserId + 1).append(";\n");
+        script.append("ALTER TABLE films ALTER COLUMN film_id RESTART WITH ").append(lastFilmId + 1).append(";\n");
+        try {
+            close();
+            Files.writeString(directory.resolve("load.sql"), script, StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public void close() {
+        try {
+            for (Writer writer : writers.values()) {
+                writer.close();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void append(StringBuilder script, String insert, String table) {
+        if (writers.containsKey(table)) {
+            String path = directory.resolve(table + ".csv").toString().replace("'", "''");
+            script.append(insert).append("\nSELECT * FROM CSVREAD('").append(path)
+                    .append("', NULL, 'charset=UTF-8');\n");
+        }
+    }
+
+    private void write(String table, String header, String line) {
+        try {
+            Writer writer = writers.get(table);
+            if (writer == null) {
+                writer = Files.newBufferedWriter(directory.resolve(table + ".csv"), StandardCharsets.UTF_8);
+                writer.write(header);
+                writer.write('\n');
+                writers.put(table, writer);
+            }
+            writer.write(line);
+            writer.write('\n');
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,315 @@
+package ru.yandex.practicum.filmorate.datagen;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.flywaydb.core.Flyway;
+import org.springframework.jdbc.UncategorizedSQLException;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import javax.sql.DataSource;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+/**
+ * Генератор синтетических данных для нагрузочных стендов и бенчмарков: пользователи, фильмы с жанрами,
+ * лайки со степенным распределением популярности фильмов и дружба, сгруппированная в сообщества.
+ * Пишет напрямую пакетами JDBC или в CSV для загрузки через H2 {@code CSVREAD}; {@code films.like_count}
+ * заполняется по сгенерированным лайкам.
+ *
+ * <pre>
+ * java -cp target/test-classes:target/classes:... ru.yandex.practicum.filmorate.datagen.DataGenerator \
+ *     --url=jdbc:h2:file:./db/filmorate --users=1000000 --films=200000 --likes-per-user=10
+ * </pre>
+ */
+@Slf4j
+@RequiredArgsConstructor
+public final class DataGenerator {
+    private static final int[] DEFAULT_RATING_IDS = {1, 2, 3, 4, 5};
+    private static final int[] DEFAULT_GENRE_IDS = {1, 2, 3, 4, 5, 6};
+    private static final LocalDate BIRTHDAYS_FROM = LocalDate.of(1950, 1, 1);
+    private static final LocalDate RELEASES_FROM = LocalDate.of(1930, 1, 1);
+
+    private final GeneratorSettings settings;
+
+    /**
+     * Дописывает данные в БД со схемой из миграций {@code db/migration} и заполненными справочниками,
+     * выдавая id после уже существующих.
+     */
+    public Result generate(DataSource dataSource) {
+        try (Connection connection = dataSource.getConnection()) {
+            int[] ratingIds = ids(connection, "SELECT rating_id FROM mpa_rating ORDER BY rating_id");
+            int[] genreIds = ids(connection, "SELECT genre_id FROM genres ORDER BY genre_id");
+            if (ratingIds.length == 0 || genreIds.length == 0) {
+                throw new IllegalStateException("Справочники mpa_rating и genres пусты");
+            }
+            int userBase = maxId(connection, "SELECT COALESCE(MAX(user_id), 0) FROM users");
+            int filmBase = maxId(connection, "SELECT COALESCE(MAX(film_id), 0) FROM films");
+            boolean autoCommit = connection.getAutoCommit();
+            connection.setAutoCommit(false);
+            try (RowSink sink = new JdbcRowSink(connection, settings.getBatchSize())) {
+                return generate(sink, userBase, filmBase, ratingIds, genreIds);
+            } finally {
+                connection.setAutoCommit(autoCommit);
+            }
+        } catch (SQLException e) {
+            throw new UncategorizedSQLException("Генерация данных", null, e);
+        }
+    }
+
+    /**
+     * Пишет CSV-файлы и {@code load.sql} в каталог; id начинаются с 1,
+     * справочники — как в {@code R__reference_data.sql}.
+     */
+    public Result writeCsv(Path directory) {
+        try (RowSink sink = new CsvRowSink(directory)) {
+            return generate(sink, 0, 0, DEFAULT_RATING_IDS, DEFAULT_GENRE_IDS);
+        }
+    }
+
+    public static void main(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            int separator = arg.indexOf('=');
+            if (!arg.startsWith("--") || separator < 0) {
+                throw new IllegalArgumentException("Ожидается --параметр=значение: " + arg);
+            }
+            options.put(arg.substring(2, separator), arg.substring(separator + 1));
+        }
+        DataGenerator generator = new DataGenerator(settings(options));
+        Result result;
+        if (options.containsKey("csv")) {
+            result = generator.writeCsv(Path.of(options.remove("csv")));
+        } else if (options.containsKey("url")) {
+            DataSource dataSource = new DriverManagerDataSource(options.remove("url"),
+                    options.getOrDefault("username", "sa"), options.getOrDefault("password", "password"));
+            initializeSchema(dataSource);
+            result = generator.generate(dataSource);
+        } else {
+            throw new IllegalArgumentException("Укажите --url=<jdbc-url> или --csv=<каталог>");
+        }
+        log.info("Сгенерировано: {}", result);
+    }
+
+    Result generate(RowSink sink, int userBase, int filmBase, int[] ratingIds, int[] genreIds) {
+        long started = System.nanoTime();
+        SplittableRandom root = new SplittableRandom(settings.getSeed());
+        SplittableRandom userRandom = root.split();
+        SplittableRandom filmRandom = root.split();
+        SplittableRandom genreRandom = root.split();
+        SplittableRandom likeRandom = root.split();
+        SplittableRandom friendRandom = root.split();
+        int users = settings.getUsers();
+        int films = settings.getFilms();
+
+        for (int i = 1; i <= users; i++) {
+            int id = userBase + i;
+            sink.user(id, "user" + id + "@mail.ru", "user" + id, "User " + id,
+                    BIRTHDAYS_FROM.plusDays(userRandom.nextInt(20_000)));
+        }
+        log.info("Пользователи: {} за {} мс", users, elapsedMs(started));
+
+        for (int i = 1; i <= films; i++) {
+            int id = filmBase + i;
+            sink.film(id, "Film " + id, "Description of film " + id,
+                    RELEASES_FROM.plusDays(filmRandom.nextInt(34_000)), 60 + filmRandom.nextInt(120),
+                    ratingIds[filmRandom.nextInt(ratingIds.length)]);
+        }
+        log.info("Фильмы: {} за {} мс", films, elapsedMs(started));
+
+        long filmGenres = 0;
+        int[] genres = genreIds.clone();
+        int maxGenres = Math.min(settings.getMaxGenresPerFilm(), genres.length);
+        for (int i = 1; i <= films && maxGenres > 0; i++) {
+            int count = 1 + genreRandom.nextInt(maxGenres);
+            for (int j = 0; j < count; j++) {
+                int k = j + genreRandom.nextInt(genres.length - j);
+                int genreId = genres[k];
+                genres[k] = genres[j];
+                genres[j] = genreId;
+                sink.filmGenre(filmBase + i, genreId);
+            }
+            filmGenres += count;
+        }
+
+        long likes = 0;
+        int[] likeCounts = new int[films + 1];
+        if (films > 0) {
+            int[] filmByRank = shuffledIds(films, likeRandom);
+            double[] popularity = zipfCumulative(films, settings.getFilmPopularityExponent());
+            int[] lastLikedBy = new int[films];
+            for (int u = 1; u <= users; u++) {
+                int count = count(likeRandom, settings.getLikesPerUser(), settings.getLikesSpread(), films / 2);
+                for (int j = 0; j < count; j++) {
+                    int rank;
+                    do {
+                        rank = sample(popularity, likeRandom);
+                    } while (lastLikedBy[rank] == u);
+                    lastLikedBy[rank] = u;
+                    int film = filmByRank[rank];
+                    likeCounts[film]++;
+                    sink.like(filmBase + film, userBase + u);
+                }
+                likes += count;
+            }
+        }
+        log.info("Лайки: {} за {} мс", likes, elapsedMs(started));
+
+        long friendships = 0;
+        int[] lastBefriendedBy = new int[users + 1];
+        int communitySize = Math.max(1, settings.getCommunitySize());
+        for (int u = 1; u <= users; u++) {
+            int count = count(friendRandom, settings.getFriendsPerUser(), settings.getFriendsSpread(),
+                    (users - 1) / 2);
+            int communityStart = (u - 1) / communitySize * communitySize + 1;
+            int communityLength = Math.min(communitySize, users - communityStart + 1);
+            int localFriends = 0;
+            for (int j = 0; j < count; j++) {
+                int friend;
+                boolean local;
+                do {
+                    local = localFriends < communityLength - 1
+                            && friendRandom.nextDouble() < settings.getCommunityAffinity();
+                    friend = local
+                            ? communityStart + friendRandom.nextInt(communityLength)
+                            : 1 + friendRandom.nextInt(users);
+                } while (friend == u || lastBefriendedBy[friend] == u);
+                lastBefriendedBy[friend] = u;
+                if (local) {
+                    localFriends++;
+                }
+                sink.friendship(userBase + u, userBase + friend);
+            }
+            friendships += count;
+        }
+        log.info("Дружба: {} за {} мс", friendships, elapsedMs(started));
+
+        for (int i = 1; i <= films; i++) {
+            if (likeCounts[i] > 0) {
+                sink.likeCount(filmBase + i, likeCounts[i]);
+            }
+        }
+        sink.finish(userBase + users, filmBase + films);
+        return new Result(users, films, filmGenres, likes, friendships, elapsedMs(started));
+    }
+
+    /**
+     * Сколько строк получит пользователь при заданном среднем; не больше {@code cap}, чтобы выбор
+     * без повторов не перебирал почти весь диапазон.
+     */
+    private static int count(SplittableRandom random, int mean, GeneratorSettings.Spread spread, int cap) {
+        if (mean <= 0 || cap <= 0) {
+            return 0;
+        }
+        int count = mean;
+        if (spread == GeneratorSettings.Spread.GEOMETRIC) {
+            double p = 1.0 / (mean + 1);
+            count = (int) Math.min(Integer.MAX_VALUE, Math.floor(Math.log(1 - random.nextDouble()) / Math.log(1 - p)));
+        }
+        return Math.min(count, cap);
+    }
+
+    private static double[] zipfCumulative(int size, double exponent) {
+        double[] cumulative = new double[size];
+        double sum = 0;
+        for (int rank = 0; rank < size; rank++) {
+            sum += exponent == 0 ? 1 : Math.pow(rank + 1, -exponent);
+            cumulative[rank] = sum;
+        }
+        return cumulative;
+    }
+
+    private static int sample(double[] cumulative, SplittableRandom random) {
+        double target = random.nextDouble() * cumulative[cumulative.length - 1];
+        int position = Arrays.binarySearch(cumulative, target);
+        return Math.min(position >= 0 ? position + 1 : -position - 1, cumulative.length - 1);
+    }
+
+    /**
+     * Номера 1..size в случайном порядке: самыми популярными оказываются не первые по id фильмы.
+     */
+    private static int[] shuffledIds(int size, SplittableRandom random) {
+        int[] ids = new int[size];
+        for (int i = 0; i < size; i++) {
+            ids[i] = i + 1;
+        }
+        for (int i = size - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int tmp = ids[i];
+            ids[i] = ids[j];
+            ids[j] = tmp;
+        }
+        return ids;
+    }
+
+    private static int[] ids(Connection connection, String sql) throws SQLException {
+        try (Statement statement = connection.createStatement(); ResultSet rs = statement.executeQuery(sql)) {
+            int[] ids = new int[16];
+            int size = 0;
+            while (rs.next()) {
+                if (size == ids.length) {
+                    ids = Arrays.copyOf(ids, size * 2);
+                }
+                ids[size++] = rs.getInt(1);
+            }
+            return Arrays.copyOf(ids, size);
+        }
+    }
+
+    private static int maxId(Connection connection, String sql) throws SQLException {
+        try (Statement statement = connection.createStatement(); ResultSet rs = statement.executeQuery(sql)) {
+            rs.next();
+            return rs.getInt(1);
+        }
+    }
+
+    private static long elapsedMs(long started) {
+        return (System.nanoTime() - started) / 1_000_000;
+    }
+
+    /**
+     * Те же миграции, что выполняет приложение при старте, включая справочники.
+     */
+    private static void initializeSchema(DataSource dataSource) {
+        Flyway.configure()
+                .dataSource(dataSource)
+                .baselineOnMigrate(true)
+                .baselineVersion("0")
+                .load()
+                .migrate();
+    }
+
+    private static GeneratorSettings settings(Map<String, String> options) {
+        GeneratorSettings.GeneratorSettingsBuilder builder = GeneratorSettings.builder();
+        options.forEach((name, value) -> {
+            switch (name) {
+                case "seed" -> builder.seed(Long.parseLong(value));
+                case "users" -> builder.users(Integer.parseInt(value));
+                case "films" -> builder.films(Integer.parseInt(value));
+                case "likes-per-user" -> builder.likesPerUser(Integer.parseInt(value));
+                case "likes-spread" -> builder.likesSpread(GeneratorSettings.Spread.valueOf(value.toUpperCase()));
+                case "film-popularity-exponent" -> builder.filmPopularityExponent(Double.parseDouble(value));
+                case "friends-per-user" -> builder.friendsPerUser(Integer.parseInt(value));
+                case "friends-spread" -> builder.friendsSpread(GeneratorSettings.Spread.valueOf(value.toUpperCase()));
+                case "community-size" -> builder.communitySize(Integer.parseInt(value));
+                case "community-affinity" -> builder.communityAffinity(Double.parseDouble(value));
+                case "max-genres-per-film" -> builder.maxGenresPerFilm(Integer.parseInt(value));
+                case "batch-size" -> builder.batchSize(Integer.parseInt(value));
+                case "url", "username", "password", "csv" -> {
+                }
+                default -> throw new IllegalArgumentException("Неизвестный параметр --" + name);
+            }
+        });
+        return builder.build();
+    }
+
+    public record Result(int users, int films, long filmGenres, long likes, long friendships, long elapsedMs) {
+    }
+}
@@ -0,0 +1,183 @@
+package ru.yandex.practicum.filmorate.datagen;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Генерация в память без БД: строки складываются в {@link RecordingSink}.
+ */
+class DataGeneratorTest {
+    private static final int[] RATING_IDS = {1, 2, 3, 4, 5};
+    private static final int[] GENRE_IDS = {1, 2, 3, 4, 5, 6};
+
+    private static final GeneratorSettings SMALL = GeneratorSettings.builder()
+            .users(1_000)
+            .films(400)
+            .likesPerUser(10)
+            .friendsPerUser(10)
+            .communitySize(50)
+            .build();
+
+    @Test
+    void sameSeedGivesSameRows() {
+        RecordingSink first = generate(SMALL);
+        RecordingSink second = generate(SMALL);
+        RecordingSink otherSeed = generate(SMALL.toBuilder().seed(SMALL.getSeed() + 1).build());
+
+        assertEquals(first.rows, second.rows);
+        assertNotEquals(first.rows, otherSeed.rows);
+    }
+
+    @Test
+    void likesFollowZipf() {
+        GeneratorSettings settings = SMALL.toBuilder().likesSpread(GeneratorSettings.Spread.FIXED).build();
+        RecordingSink sink = generate(settings);
+
+        assertEquals(settings.getUsers() * settings.getLikesPerUser(), sink.likes.size());
+        assertEquals(sink.likes.size(), new HashSet<>(sink.likes).size(), "лайк от пользователя фильму — один");
+        int[] counts = likesByRank(sink);
+        assertTrue(counts[0] > 10 * counts[counts.length / 2],
+                "лидер должен набрать на порядок больше медианы: " + counts[0] + " / " + counts[counts.length / 2]);
+        double topToTenth = (double) counts[0] / counts[9];
+        assertTrue(topToTenth > 3 && topToTenth < 15, "при показателе 1 лайки убывают примерно как 1/k: "
+                + topToTenth);
+
+        int[] uniform = likesByRank(generate(settings.toBuilder().filmPopularityExponent(0).build()));
+        assertTrue(uniform[0] < 3 * uniform[uniform.length / 2], "при показателе 0 популярность равномерна");
+    }
+
+    @Test
+    void likeCountsMatchLikes() {
+        RecordingSink sink = generate(SMALL);
+        Map<Integer, Integer> expected = new HashMap<>();
+        sink.likes.forEach(like -> expected.merge(like.get(0), 1, Integer::sum));
+
+        assertEquals(expected, sink.likeCounts);
+    }
+
+    @Test
+    void fixedFriendDegreeMostlyWithinCommunity() {
+        GeneratorSettings settings = SMALL.toBuilder().friendsSpread(GeneratorSettings.Spread.FIXED).build();
+        RecordingSink sink = generate(settings);
+
+        Map<Integer, Set<Integer>> friends = friends(sink);
+        assertEquals(settings.getUsers(), friends.size());
+        int local = 0;
+        for (Map.Entry<Integer, Set<Integer>> entry : friends.entrySet()) {
+            int userId = entry.getKey();
+            assertEquals(settings.getFriendsPerUser(), entry.getValue().size(), "друзья пользователя " + userId);
+            assertFalse(entry.getValue().contains(userId), "пользователь не дружит сам с собой");
+            for (int friendId : entry.getValue()) {
+                if ((friendId - 1) / settings.getCommunitySize() == (userId - 1) / settings.getCommunitySize()) {
+                    local++;
+                }
+            }
+        }
+        double localShare = (double) local / sink.friendships.size();
+        assertTrue(localShare > 0.75 && localShare < 0.9, "доля друзей внутри сообщества: " + localShare);
+    }
+
+    @Test
+    void geometricFriendDegreeKeepsMean() {
+        RecordingSink sink = generate(SMALL);
+
+        double mean = (double) sink.friendships.size() / SMALL.getUsers();
+        assertEquals(SMALL.getFriendsPerUser(), mean, SMALL.getFriendsPerUser() * 0.1);
+        int[] degrees = friends(sink).values().stream().mapToInt(Set::size).sorted().toArray();
+        assertTrue(degrees[degrees.length - 1] > 3 * SMALL.getFriendsPerUser(), "у распределения длинный хвост");
+        assertEquals(sink.friendships.size(), new HashSet<>(sink.friendships).size());
+    }
+
+    private static RecordingSink generate(GeneratorSettings settings) {
+        RecordingSink sink = new RecordingSink();
+        DataGenerator.Result result = new DataGenerator(settings).generate(sink, 0, 0, RATING_IDS, GENRE_IDS);
+        assertEquals(sink.likes.size(), result.likes());
+        assertEquals(sink.friendships.size(), result.friendships());
+        assertEquals(settings.getUsers(), sink.lastUserId);
+        assertEquals(settings.getFilms(), sink.lastFilmId);
+        return sink;
+    }
+
+    /**
+     * Число лайков у фильмов по убыванию.
+     */
+    private static int[] likesByRank(RecordingSink sink) {
+        int[] counts = sink.likeCounts.values().stream().mapToInt(Integer::intValue).sorted().toArray();
+        int[] descending = new int[counts.length];
+        for (int i = 0; i < counts.length; i++) {
+            descending[i] = counts[counts.length - 1 - i];
+        }
+        return descending;
+    }
+
+    private static Map<Integer, Set<Integer>> friends(RecordingSink sink) {
+        Map<Integer, Set<Integer>> friends = new HashMap<>();
+        sink.friendships.forEach(pair -> friends.computeIfAbsent(pair.get(0), id -> new HashSet<>()).add(pair.get(1)));
+        return friends;
+    }
+
+    private static final class RecordingSink implements RowSink {
+        private final List<String> rows = new ArrayList<>();
+        private final List<List<Integer>> likes = new ArrayList<>();
+        private final List<List<Integer>> friendships = new ArrayList<>();
+        private final Map<Integer, Integer> likeCounts = new HashMap<>();
+        private int lastUserId;
+        private int lastFilmId;
+
+        @Override
+        public void user(int id, String email, String login, String name, LocalDate birthday) {
+            rows.add("user " + id + " " + email + " " + login + " " + name + " " + birthday);
+        }
+
+        @Override
+        public void film(int id, String name, String description, LocalDate releaseDate, int duration, int ratingId) {
+            rows.add("film " + id + " " + name + " " + description + " " + releaseDate + " " + duration + " "
+                    + ratingId);
+        }
+
+        @Override
+        public void filmGenre(int filmId, int genreId) {
+            rows.add("genre " + filmId + " " + genreId);
+        }
+
+        @Override
+        public void like(int filmId, int userId) {
+            rows.add("like " + filmId + " " + userId);
+            likes.add(List.of(filmId, userId));
+        }
+
+        @Override
+        public void friendship(int userId, int friendId) {
+            rows.add("friend " + userId + " " + friendId);
+            friendships.add(List.of(userId, friendId));
+        }
+
+        @Override
+        public void likeCount(int filmId, int count) {
+            rows.add("count " + filmId + " " + count);
+            likeCounts.put(filmId, count);
+        }
+
+        @Override
+        public void finish(int lastUserId, int lastFilmId) {
+            this.lastUserId = lastUserId;
+            this.lastFilmId = lastFilmId;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package ru.yandex.practicum.filmorate.datagen;
+
+import lombok.Builder;
+import lombok.Value;
+
+/**
+ * Объём и распределения синтетических данных. Одинаковые настройки с одинаковым {@code seed}
+ * дают одинаковый набор строк.
+ */
+@Value
+@Builder(toBuilder = true)
+public class GeneratorSettings {
+    @Builder.Default
+    long seed = 42;
+    @Builder.Default
+    int users = 10_000;
+    @Builder.Default
+    int films = 5_000;
+    /**
+     * Среднее число лайков одного пользователя.
+     */
+    @Builder.Default
+    int likesPerUser = 20;
+    @Builder.Default
+    Spread likesSpread = Spread.GEOMETRIC;
+    /**
+     * Показатель степенного (Ципфа) распределения популярности фильмов: 0 — все фильмы равновероятны,
+     * 1 — фильм на k-м месте по популярности получает лайки в k раз реже первого.
+     */
+    @Builder.Default
+    double filmPopularityExponent = 1.0;
+    /**
+     * Среднее число друзей одного пользователя.
+     */
+    @Builder.Default
+    int friendsPerUser = 30;
+    @Builder.Default
+    Spread friendsSpread = Spread.GEOMETRIC;
+    /**
+     * Пользователи разбиты на сообщества подряд идущих id такого размера.
+     */
+    @Builder.Default
+    int communitySize = 200;
+    /**
+     * Доля друзей, выбираемых внутри своего сообщества; остальные — среди всех пользователей.
+     */
+    @Builder.Default
+    double communityAffinity = 0.8;
+    @Builder.Default
+    int maxGenresPerFilm = 3;
+    @Builder.Default
+    int batchSize = 10_000;
+
+    /**
+     * Как число лайков или друзей распределено между пользователями при заданном среднем.
+     */
+    public enum Spread {
+        /**
+         * Всем поровну.
+         */
+        FIXED,
+        /**
+         * Геометрическое распределение: большинство почти неактивно, у немногих — на порядок больше среднего.
+         */
+        GEOMETRIC
+    }
+}
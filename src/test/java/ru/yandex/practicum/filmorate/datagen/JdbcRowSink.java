@@ -0,0 +1,146 @@
+package ru.yandex.practicum.filmorate.datagen;
+
+import org.springframework.jdbc.UncategorizedSQLException;
+
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+
+/**
+ * Пишет строки пакетами JDBC в одном соединении, фиксируя транзакцию после каждого пакета.
+ */
+final class JdbcRowSink implements RowSink {
+    private static final String INSERT_USER = "INSERT INTO users (user_id, email, login, name, birthday) " +
+            "VALUES (?, ?, ?, ?, ?)";
+    private static final String INSERT_FILM = "INSERT INTO films " +
+            "(film_id, name, description, releaseDate, duration, rating_id) VALUES (?, ?, ?, ?, ?, ?)";
+    private static final String INSERT_FILM_GENRE = "INSERT INTO film_genres (film_id, genre_id) VALUES (?, ?)";
+    private static final String INSERT_LIKE = "INSERT INTO likes (film_id, user_id) VALUES (?, ?)";
+    private static final String INSERT_FRIENDSHIP = "INSERT INTO friendship (user_id, friend_id) VALUES (?, ?)";
+    private static final String UPDATE_LIKE_COUNT = "UPDATE films SET like_count = like_count + ? WHERE film_id = ?";
+
+    private final Connection connection;
+    private final int batchSize;
+
+    private String sql;
+    private PreparedStatement statement;
+    private int pending;
+
+    JdbcRowSink(Connection connection, int batchSize) {
+        this.connection = connection;
+        this.batchSize = batchSize;
+    }
+
+    @Override
+    public void user(int id, String email, String login, String name, LocalDate birthday) {
+        add(INSERT_USER, ps -> {
+            ps.setInt(1, id);
+            ps.setString(2, email);
+            ps.setString(3, login);
+            ps.setString(4, name);
+            ps.setDate(5, Date.valueOf(birthday));
+        });
+    }
+
+    @Override
+    public void film(int id, String name, String description, LocalDate releaseDate, int duration, int ratingId) {
+        add(INSERT_FILM, ps -> {
+            ps.setInt(1, id);
+            ps.setString(2, name);
+            ps.setString(3, description);
+            ps.setDate(4, Date.valueOf(releaseDate));
+            ps.setInt(5, duration);
+            ps.setInt(6, ratingId);
+        });
+    }
+
+    @Override
+    public void filmGenre(int filmId, int genreId) {
+        add(INSERT_FILM_GENRE, ps -> {
+            ps.setInt(1, filmId);
+            ps.setInt(2, genreId);
+        });
+    }
+
+    @Override
+    public void like(int filmId, int userId) {
+        add(INSERT_LIKE, ps -> {
+            ps.setInt(1, filmId);
+            ps.setInt(2, userId);
+        });
+    }
+
+    @Override
+    public void friendship(int userId, int friendId) {
+        add(INSERT_FRIENDSHIP, ps -> {
+            ps.setInt(1, userId);
+            ps.setInt(2, friendId);
+        });
+    }
+
+    @Override
+    public void likeCount(int filmId, int count) {
+        add(UPDATE_LIKE_COUNT, ps -> {
+            ps.setInt(1, count);
+            ps.setInt(2, filmId);
+        });
+    }
+
+    @Override
+    public void finish(int lastUserId, int lastFilmId) {
+        String restart = "ALTER TABLE users ALTER COLUMN user_id RESTART WITH " + (lastUserId + 1);
+        try (Statement ddl = connection.createStatement()) {
+            flush();
+            ddl.execute(restart);
+            ddl.execute("ALTER TABLE films ALTER COLUMN film_id RESTART WITH " + (lastFilmId + 1));
+            connection.commit();
+        } catch (SQLException e) {
+            throw new UncategorizedSQLException("Сдвиг счётчиков id", restart, e);
+        }
+    }
+
+    @Override
+    public void close() {
+        try {
+            if (statement != null) {
+                statement.close();
+            }
+        } catch (SQLException e) {
+            throw new UncategorizedSQLException("Закрытие пакета", sql, e);
+        }
+    }
+
+    private void add(String next, ParameterSetter setter) {
+        try {
+            if (!next.equals(sql)) {
+                flush();
+                close();
+                statement = connection.prepareStatement(next);
+                sql = next;
+            }
+            setter.set(statement);
+            statement.addBatch();
+            if (++pending >= batchSize) {
+                flush();
+            }
+        } catch (SQLException e) {
+            throw new UncategorizedSQLException("Пакетная вставка", next, e);
+        }
+    }
+
+    private void flush() throws SQLException {
+        if (pending > 0) {
+            statement.executeBatch();
+            connection.commit();
+            pending = 0;
+        }
+    }
+
+    @FunctionalInterface
+    private interface ParameterSetter {
+        void set(PreparedStatement ps) throws SQLException;
+    }
+}
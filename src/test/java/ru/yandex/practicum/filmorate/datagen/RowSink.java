@@ -0,0 +1,29 @@
+package ru.yandex.practicum.filmorate.datagen;
+
+import java.time.LocalDate;
+
+/**
+ * Приёмник сгенерированных строк. Таблицы приходят по очереди в порядке внешних ключей:
+ * пользователи, фильмы, жанры фильмов, лайки, дружба, затем счётчики лайков.
+ */
+interface RowSink extends AutoCloseable {
+    void user(int id, String email, String login, String name, LocalDate birthday);
+
+    void film(int id, String name, String description, LocalDate releaseDate, int duration, int ratingId);
+
+    void filmGenre(int filmId, int genreId);
+
+    void like(int filmId, int userId);
+
+    void friendship(int userId, int friendId);
+
+    void likeCount(int filmId, int count);
+
+    /**
+     * Дописывает остаток строк и сдвигает счётчики идентификаторов за последние выданные id.
+     */
+    void finish(int lastUserId, int lastFilmId);
+
+    @Override
+    void close();
+}
@@ -0,0 +1,43 @@
+package ru.yandex.practicum.filmorate.exception;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.web.servlet.MockMvc;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Пул из двух соединений (одного не хватает Flyway при старте), оба заняты тестом: запрос к БД
+ * не дожидается соединения.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:error-handler;DB_CLOSE_DELAY=-1",
+        "spring.datasource.hikari.maximum-pool-size=2",
+        "spring.datasource.hikari.connection-timeout=500"
+})
+@AutoConfigureMockMvc
+class ErrorHandlerTest {
+    @Autowired
+    private MockMvc mockMvc;
+    @Autowired
+    private DataSource dataSource;
+
+    @Test
+    void exhaustedPoolIsServiceUnavailable() throws Exception {
+        try (Connection first = dataSource.getConnection(); Connection second = dataSource.getConnection()) {
+            mockMvc.perform(get("/users"))
+                    .andExpect(status().isServiceUnavailable())
+                    .andExpect(header().string(HttpHeaders.RETRY_AFTER, "1"));
+        }
+        mockMvc.perform(get("/users"))
+                .andExpect(status().isOk());
+    }
+}
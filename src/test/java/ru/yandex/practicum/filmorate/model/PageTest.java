@@ -0,0 +1,74 @@
+package ru.yandex.practicum.filmorate.model;
+
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.exception.ValidateException;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.List;
+import java.util.function.ToIntFunction;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class PageTest {
+    private static final ToIntFunction<Integer> ID = Integer::intValue;
+
+    @Test
+    void cursorOfFullPageDecodesToLastItem() {
+        Page<Integer> page = Page.of(List.of(3, 8, 15, 21), 3, ID);
+
+        assertEquals(List.of(3, 8, 15), page.getItems());
+        assertNotNull(page.getNext());
+        assertEquals(15, Page.decodeCursor(page.getNext()));
+    }
+
+    @Test
+    void cursorRoundTripsLargeIds() {
+        Page<Integer> page = Page.of(List.of(Integer.MAX_VALUE - 1, Integer.MAX_VALUE), 1, ID);
+
+        assertEquals(Integer.MAX_VALUE - 1, Page.decodeCursor(page.getNext()));
+    }
+
+    @Test
+    void lastPageHasNoCursor() {
+        assertNull(Page.of(List.of(1, 2, 3), 3, ID).getNext());
+        assertNull(Page.of(List.of(1, 2), 3, ID).getNext());
+        assertNull(Page.of(List.<Integer>of(), 3, ID).getNext());
+    }
+
+    @Test
+    void missingCursorStartsFromBeginning() {
+        assertEquals(0, Page.decodeCursor(null));
+        assertEquals(0, Page.decodeCursor(""));
+        assertEquals(0, Page.decodeCursor("  "));
+    }
+
+    @Test
+    void numericCursorIsAcceptedAsId() {
+        assertEquals(42, Page.decodeCursor("42"));
+    }
+
+    @Test
+    void invalidCursorIsValidationError() {
+        for (String cursor : List.of("не-курсор", "%%%", "-1", "99999999999", encode("id:abc"), encode("ab:12"),
+                encode("id:"), encode("id:99999999999"))) {
+            assertThrows(ValidateException.class, () -> Page.decodeCursor(cursor), cursor);
+        }
+    }
+
+    @Test
+    void limitOutsideRangeIsValidationError() {
+        assertEquals(1, Page.validateLimit(1));
+        assertEquals(Page.MAX_LIMIT, Page.validateLimit(Page.MAX_LIMIT));
+        assertThrows(ValidateException.class, () -> Page.validateLimit(0));
+        assertThrows(ValidateException.class, () -> Page.validateLimit(-1));
+        assertThrows(ValidateException.class, () -> Page.validateLimit(Page.MAX_LIMIT + 1));
+    }
+
+    private static String encode(String cursor) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(cursor.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,210 @@
+package ru.yandex.practicum.filmorate.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.Mpa;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import java.util.function.UnaryOperator;
+
+import static org.awaitility.Awaitility.await;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Загрузчики — лямбды со счётчиком вызовов; медленную загрузку изображает ожидание {@link CountDownLatch}.
+ */
+class SingleFlightTest {
+    private static final UnaryOperator<String> SAME = UnaryOperator.identity();
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final ExecutorService callers = Executors.newCachedThreadPool();
+    private SingleFlight singleFlight = singleFlight(60_000, 1, 10);
+
+    @AfterEach
+    void tearDown() {
+        callers.shutdownNow();
+        singleFlight.shutdown();
+    }
+
+    @Test
+    void concurrentReadsShareOneLoad() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger loads = new AtomicInteger();
+        Supplier<String> loader = () -> {
+            loads.incrementAndGet();
+            awaitLatch(release);
+            return "фильм";
+        };
+
+        List<Future<String>> reads = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            reads.add(callers.submit(() -> singleFlight.read("film", 1, "v1", loader, SAME)));
+        }
+        await().atMost(Duration.ofSeconds(5))
+                .until(() -> reads("film", "miss") == 1 && reads("film", "coalesced") == 4);
+        release.countDown();
+
+        for (Future<String> read : reads) {
+            assertEquals("фильм", read.get(5, TimeUnit.SECONDS));
+        }
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    void sameVersionIsServedNewVersionIsLoaded() {
+        AtomicInteger loads = new AtomicInteger();
+        Supplier<String> loader = () -> "загрузка " + loads.incrementAndGet();
+
+        assertEquals("загрузка 1", singleFlight.read("film", 1, "v1", loader, SAME));
+        assertEquals("загрузка 1", singleFlight.read("film", 1, "v1", loader, SAME));
+        assertEquals("загрузка 2", singleFlight.read("film", 1, "v2", loader, SAME));
+        assertEquals("загрузка 3", singleFlight.read("film", 2, "v2", loader, SAME), "другой ключ грузится отдельно");
+        assertEquals(1, reads("film", "hit"));
+        assertEquals(3, reads("film", "miss"));
+    }
+
+    @Test
+    void staleValueKeepsItsVersionWhileNewOneLoads() {
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger loads = new AtomicInteger();
+        assertEquals(new SingleFlight.Versioned<>("старый", "v1"),
+                singleFlight.readStale("popular", 10, "v1", () -> "старый", SAME));
+
+        Supplier<String> slow = () -> {
+            loads.incrementAndGet();
+            awaitLatch(release);
+            return "новый";
+        };
+        SingleFlight.Versioned<String> old = new SingleFlight.Versioned<>("старый", "v1");
+        assertEquals(old, singleFlight.readStale("popular", 10, "v2", slow, SAME));
+        assertEquals(old, singleFlight.readStale("popular", 10, "v2", slow, SAME),
+                "пока идёт фоновая загрузка, отдаётся прежний результат");
+        release.countDown();
+
+        await().atMost(Duration.ofSeconds(5)).until(() -> singleFlight.readStale("popular", 10, "v2", slow, SAME)
+                .equals(new SingleFlight.Versioned<>("новый", "v2")));
+        assertEquals(1, loads.get(), "одна фоновая загрузка на ключ");
+        assertEquals(1, meterRegistry.counter("filmorate.single-flight.refreshes", "cache", "popular").count());
+    }
+
+    @Test
+    void failureReachesWaitersAndNextReadReloads() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        Supplier<String> failing = () -> {
+            awaitLatch(release);
+            throw new IllegalStateException("БД недоступна");
+        };
+
+        Future<String> loading = callers.submit(() -> singleFlight.read("user", 1, "v1", failing, SAME));
+        await().atMost(Duration.ofSeconds(5)).until(() -> reads("user", "miss") == 1);
+        Future<String> waiting = callers.submit(() ->
+                singleFlight.read("user", 1, "v1", () -> "лишняя загрузка", SAME));
+        await().atMost(Duration.ofSeconds(5)).until(() -> reads("user", "coalesced") == 1);
+        release.countDown();
+
+        for (Future<String> read : List.of(loading, waiting)) {
+            ExecutionException e = assertThrows(ExecutionException.class, () -> read.get(5, TimeUnit.SECONDS));
+            assertTrue(e.getCause() instanceof IllegalStateException, e.getCause().toString());
+        }
+        assertEquals("пользователь", singleFlight.read("user", 1, "v1", () -> "пользователь", SAME),
+                "ошибка не кэшируется");
+    }
+
+    @Test
+    void waiterLoadsItselfAfterTimeout() throws Exception {
+        singleFlight.shutdown();
+        singleFlight = singleFlight(100, 1, 10);
+        CountDownLatch release = new CountDownLatch(1);
+
+        Future<String> hung = callers.submit(() -> singleFlight.read("friends", 1, "v1", () -> {
+            awaitLatch(release);
+            return "медленно";
+        }, SAME));
+        await().atMost(Duration.ofSeconds(5)).until(() -> reads("friends", "miss") == 1);
+
+        assertEquals("сам", singleFlight.read("friends", 1, "v1", () -> "сам", SAME));
+        assertEquals(1, reads("friends", "timeout"));
+        release.countDown();
+        assertEquals("медленно", hung.get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void fullRefreshQueueServesStaleAndRetriesLater() {
+        singleFlight.shutdown();
+        singleFlight = singleFlight(60_000, 1, 1);
+        CountDownLatch release = new CountDownLatch(1);
+        Supplier<String> slow = () -> {
+            awaitLatch(release);
+            return "новый";
+        };
+        for (int key = 1; key <= 3; key++) {
+            singleFlight.readStale("popular", key, "v1", () -> "старый", SAME);
+        }
+
+        singleFlight.readStale("popular", 1, "v2", slow, SAME);
+        singleFlight.readStale("popular", 2, "v2", slow, SAME);
+        assertEquals(new SingleFlight.Versioned<>("старый", "v1"),
+                singleFlight.readStale("popular", 3, "v2", () -> "новый", SAME), "очередь заполнена");
+        assertEquals(2, meterRegistry.counter("filmorate.single-flight.refreshes", "cache", "popular").count());
+        release.countDown();
+
+        await().atMost(Duration.ofSeconds(5))
+                .until(() -> singleFlight.readStale("popular", 3, "v2", () -> "новый", SAME)
+                        .equals(new SingleFlight.Versioned<>("новый", "v2")));
+    }
+
+    @Test
+    void callersGetCopiesOfCachedFilm() {
+        Film loaded = Film.builder().id(1).name("Фильм").mpa(new Mpa(1, "G")).build();
+        loaded.getGenres().add(new Genre(1, "Комедия"));
+        Supplier<Film> loader = () -> loaded;
+
+        Film first = singleFlight.read("film", 1, "v1", loader, Film::copy);
+        assertNotSame(loaded, first);
+        assertEquals(loaded, first);
+        first.setName("Изменено");
+        first.getMpa().setName("R");
+        first.getGenres().clear();
+
+        Film second = singleFlight.read("film", 1, "v1", loader, Film::copy);
+        assertEquals(1, reads("film", "hit"));
+        assertEquals("Фильм", second.getName());
+        assertEquals("G", second.getMpa().getName());
+        assertEquals(1, second.getGenres().size());
+    }
+
+    private SingleFlight singleFlight(long waitMs, int refreshThreads, int refreshQueue) {
+        return new SingleFlight(meterRegistry, 1000, 2000, waitMs, refreshThreads, refreshQueue);
+    }
+
+    private double reads(String cache, String outcome) {
+        return meterRegistry.counter("filmorate.single-flight.reads", "cache", cache, "outcome", outcome).count();
+    }
+
+    private static void awaitLatch(CountDownLatch latch) {
+        try {
+            if (!latch.await(10, TimeUnit.SECONDS)) {
+                throw new IllegalStateException("Тест не отпустил загрузку");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+}